@@ -172,6 +172,156 @@ public final class TestApp {
     			   errors.keySet().containsAll(Arrays.asList(3,4)));
     }
     
+    @Test
+    public void testAgeIntervals() throws VaccineException {
+    	Vaccines vs = new Vaccines();
+    	vs.addPerson("John", "Smith", "SSN1", Vaccines.CURRENT_YEAR - 20);
+    	vs.addPerson("Mary", "Smith", "SSN2", Vaccines.CURRENT_YEAR - 45);
+    	vs.addPerson("Anna", "Brown", "SSN3", Vaccines.CURRENT_YEAR - 120);
+    	
+    	// Large breaks do not depend on the ages of the people
+    	vs.setAgeIntervals(40, 10000);
+    	assertEquals(Arrays.asList("SSN1"), new ArrayList<>(vs.getInInterval("[0,40)")));
+    	assertEquals(Arrays.asList("SSN2", "SSN3"), new ArrayList<>(vs.getInInterval("[40,10000)")));
+    	assertEquals(0, vs.getInInterval("[10000,+)").size());
+    	
+    	// A new definition replaces the previous intervals
+    	vs.setAgeIntervals(30, 100);
+    	assertEquals(Arrays.asList("[0,30)", "[30,100)", "[100,+)"), new ArrayList<>(vs.getAgeIntervals()));
+    	assertEquals(Arrays.asList("SSN1"), new ArrayList<>(vs.getInInterval("[0,30)")));
+    	assertEquals(Arrays.asList("SSN2"), new ArrayList<>(vs.getInInterval("[30,100)")));
+    	assertEquals(Arrays.asList("SSN3"), new ArrayList<>(vs.getInInterval("[100,+)")));
+    	
+    	// People added later join the bucket of their interval
+    	vs.addPerson("Paul", "Brown", "SSN4", Vaccines.CURRENT_YEAR - 30);
+    	assertEquals(Arrays.asList("SSN2", "SSN4"), new ArrayList<>(vs.getInInterval("[30,100)")));
+    }
+    
+    @Test
+    public void testWeekAllocateAfterClear() throws VaccineException {
+    	Vaccines vs = new Vaccines();
+    	generateAndAddPerson(2000, (String first, String last, String ssn, int year) -> vs.addPerson(first, last, ssn, year));
+    	vs.setAgeIntervals(30,40,50,60,70);
+    	vs.defineHub("Hub 1");
+    	vs.defineHub("Hub 2");
+    	vs.setStaff("Hub 1", 2, 2, 2);
+    	vs.setStaff("Hub 2", 3, 2, 1);
+    	vs.setHours(4, 4, 4, 4, 4, 2, 0);
+    	
+    	List<Map<String,List<String>>> week = vs.weekAllocate();
+    	assertEquals("Wrong number of days", 7, week.size());
+    	assertEquals("Wrong number of people allocated", 80, week.get(0).get("Hub 1").size());
+    	
+    	vs.clearAllocation();
+    	assertEquals("Different allocation after clearAllocation", week, vs.weekAllocate());
+    	
+    	// The same people are allocated calling allocate() for every day and hub
+    	vs.clearAllocation();
+    	for(int day = 0; day < 7; day++) {
+    		for(String hub : vs.getHubs())
+    			assertEquals("Wrong allocation of " + hub + " on day " + day, week.get(day).get(hub), vs.allocate(hub, day));
+    	}
+    }
+    
+    @Test
+    public void testLoadListener() throws VaccineException, IOException {
+    	Vaccines vs = new Vaccines();
+    	vs.addPerson("Mary", "Brown", "BRWMRY01G23H456I", 1950);
+    	
+    	Map<Integer,String> errors = new HashMap<>();
+    	vs.setLoadListener((i,l)-> errors.put(i, l) );
+    	String content="SSN,LAST,FIRST,YEAR\n"+				//1: header
+    				   "ABCDEF01G23H456I,Smith,John,1923\n"+  //2: ok
+    				   "ABCDEF01G23H456I,Smith,John,1923\n"+  //3: duplicated ssn
+    				   "ABCFED01G23H987J,Smith\n"+ 			//4: missing first name
+    				   "\n"+ 								//5: blank
+    				   "BRWMRY01G23H456I,Brown,Mary,1950\n"+  //6: already added
+    				   "ABCFED01G23H987K,Smith,Jane,19x0\n"+  //7: wrong year
+    				   "ABCFED01G23H987L,Smith,Jack,1960";    //8: ok, without newline
+    	
+    	assertEquals("Wrong number of people loaded", 2, vs.loadPeople(new StringReader(content)));
+    	assertEquals("Wrong number of loaded rows", 2, vs.getLoadedRows());
+    	assertEquals("Wrong number of rejected rows", 5, vs.getRejectedRows());
+    	assertEquals("Wrong offending lines", Set.of(3,4,5,6,7), errors.keySet());
+    	assertEquals("Wrong offending line", "ABCFED01G23H987J,Smith", errors.get(4));
+    	assertEquals("Wrong offending line", "", errors.get(5));
+    	assertEquals("Wrong number of persons", 3, vs.countPeople());
+    	assertTrue("Missing load throughput", vs.getLoadRowsPerSecond() > 0);
+    }
+    
+    @Test
+    public void testHubRegistry() throws VaccineException {
+    	Vaccines vs = new Vaccines();
+    	vs.setHours(1, 2, 3, 4, 5, 6, 7);
+    	vs.defineHub("Hub 1");
+    	vs.defineHub("Hub 2");
+    	assertEquals(Arrays.asList("Hub 1", "Hub 2"), new ArrayList<>(vs.getHubs()));
+    	
+    	// Hubs without staff have no availability
+    	assertEquals(-1, vs.getDailyAvailable("Hub 1", 0));
+    	
+    	vs.setStaff("Hub 1", 2, 3, 4);
+    	assertEquals(20, vs.estimateHourlyCapacity("Hub 1"));
+    	assertEquals(Arrays.asList(20, 40, 60, 80, 100, 120, 140), vs.getAvailable().get("Hub 1"));
+    	assertEquals(Arrays.asList(-1, -1, -1, -1, -1, -1, -1), vs.getAvailable().get("Hub 2"));
+    	
+    	// The cached availability follows the changes of staff and hours
+    	vs.setStaff("Hub 1", 5, 3, 4);
+    	assertEquals(36, vs.estimateHourlyCapacity("Hub 1"));
+    	assertEquals(72, vs.getDailyAvailable("Hub 1", 1));
+    	vs.setStaff("Hub 2", 1, 1, 1);
+    	vs.setHours(8, 8, 8, 8, 8, 0, 0);
+    	assertEquals(Arrays.asList(288, 288, 288, 288, 288, 0, 0), vs.getAvailable().get("Hub 1"));
+    	assertEquals(Arrays.asList(80, 80, 80, 80, 80, 0, 0), vs.getAvailable().get("Hub 2"));
+    	
+    	// Changing the array passed to setHours does not change the availability
+    	int[] hours = {1, 1, 1, 1, 1, 1, 1};
+    	vs.setHours(hours);
+    	hours[0] = 10;
+    	assertEquals(10, vs.getDailyAvailable("Hub 2", 0));
+    }
+    
+    @Test
+    public void testAllocationStatistics() throws VaccineException {
+    	Vaccines vs = new Vaccines();
+    	// 4 people aged 70, 6 aged 40 and 20 aged 10
+    	for(int i = 0; i < 30; i++)
+    		vs.addPerson("First", "Last", "SSN" + i, Vaccines.CURRENT_YEAR - (i < 4 ? 70 : i < 10 ? 40 : 10));
+    	vs.setAgeIntervals(30,60);
+    	vs.defineHub("Hub 1");
+    	vs.setStaff("Hub 1", 1, 1, 1);
+    	vs.setHours(1, 1, 1, 1, 1, 1, 1);
+    	
+    	assertEquals(0.0, vs.propAllocated(), 0.0);
+    	
+    	// 10 places: 4 to [60,+), 40% of 6 to [30,60), 40% of 4 to [0,30), the last 3 to [30,60)
+    	assertEquals(10, vs.allocate("Hub 1", 0).size());
+    	assertEquals(10.0/30, vs.propAllocated(), 1e-9);
+    	
+    	Map<String,Double> byAge = vs.propAllocatedAge();
+    	assertEquals(3, byAge.size());
+    	assertEquals(1.0/30, byAge.get("[0,30)"), 1e-9);
+    	assertEquals(5.0/30, byAge.get("[30,60)"), 1e-9);
+    	assertEquals(4.0/30, byAge.get("[60,+)"), 1e-9);
+    	
+    	Map<String,Double> distribution = vs.distributionAllocated();
+    	assertEquals(0.1, distribution.get("[0,30)"), 1e-9);
+    	assertEquals(0.5, distribution.get("[30,60)"), 1e-9);
+    	assertEquals(0.4, distribution.get("[60,+)"), 1e-9);
+    	
+    	// The next day the last person of [30,60) is allocated, then 9 of [0,30)
+    	assertEquals(10, vs.allocate("Hub 1", 1).size());
+    	assertEquals(20.0/30, vs.propAllocated(), 1e-9);
+    	assertEquals(6.0/30, vs.propAllocatedAge().get("[30,60)"), 1e-9);
+    	assertEquals(10.0/30, vs.propAllocatedAge().get("[0,30)"), 1e-9);
+    	assertEquals(0.5, vs.distributionAllocated().get("[0,30)"), 1e-9);
+    	
+    	vs.clearAllocation();
+    	assertEquals(0.0, vs.propAllocated(), 0.0);
+    	assertEquals(0.0, vs.propAllocatedAge().get("[60,+)"), 0.0);
+    	assertEquals(0.0, vs.distributionAllocated().get("[60,+)"), 0.0);
+    }
+    
     
     
     ///------------------------------------------------------------------------------------------------------------
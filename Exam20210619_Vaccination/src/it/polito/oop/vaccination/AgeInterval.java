@@ -3,6 +3,8 @@
  */
 package it.polito.oop.vaccination;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.*;
 /**
  * @author Matteo
@@ -10,12 +12,25 @@ import java.util.regex.*;
  */
 public class AgeInterval {
 
+	// Compiled once, labels are parsed only for intervals not defined in the system
+	private final static Pattern LABEL = Pattern.compile(".(?<min>[0-9]+).(?<max>[0-9]+|.).");
+	
 	private int lowerEnd;
 	private int upperEnd;
 	
+	// People whose age is in this interval, in the order they were added
+	private List<Person> members;
+	// Position of the first member that may not be assigned yet: the ones before it are all assigned
+	private int cursor;
+	// Number of members assigned for the vaccination
+	private int allocated;
+	
 	public AgeInterval(int min, int max){
 		this.lowerEnd = min;
 		this.upperEnd = max;
+		this.members = new ArrayList<>();
+		this.cursor = 0;
+		this.allocated = 0;
 	}
 	
 	public String getInterval() {
@@ -31,8 +46,7 @@ public class AgeInterval {
 		int min;
 		int max;
 		
-		Pattern p = Pattern.compile(".(?<min>[0-9]+).(?<max>[0-9]+|.).");
-		Matcher m = p.matcher(interval);
+		Matcher m = LABEL.matcher(interval);
 		
 		m.find();
 		min = Integer.valueOf(m.group("min"));
@@ -44,5 +58,95 @@ public class AgeInterval {
 		
 		return new AgeInterval(min, max);
 	}
+	
+	/**
+	 * Getter for the lower end of the interval (included)
+	 */
+	public int getLowerEnd() {
+		return this.lowerEnd;
+	}
+	
+	/**
+	 * Getter for the upper end of the interval (excluded), {@code Integer.MAX_VALUE} if unbounded
+	 */
+	public int getUpperEnd() {
+		return this.upperEnd;
+	}
+	
+	/**
+	 * Add a person to the bucket of this interval
+	 * 
+	 * @param p: person whose age is in this interval
+	 */
+	void addMember(Person p) {
+		this.members.add(p);
+		if(p.isAssigned())
+			this.allocated++;
+	}
+	
+	/**
+	 * Count members that have just been assigned for the vaccination
+	 * 
+	 * @param n: number of members assigned
+	 */
+	void addAllocated(int n) {
+		this.allocated += n;
+	}
+	
+	/**
+	 * Number of members assigned for the vaccination
+	 */
+	int getAllocated() {
+		return this.allocated;
+	}
+	
+	/**
+	 * People whose age is in this interval, in the order they were added
+	 */
+	List<Person> getMembers() {
+		return this.members;
+	}
+	
+	/**
+	 * The first members not assigned for the vaccination yet, in the order they were added.
+	 * Members are assigned in order, so the ones before the cursor are skipped without being checked.
+	 * 
+	 * @param max: maximum number of members returned
+	 * @return the list of members
+	 */
+	List<Person> nextUnassigned(int max) {
+		
+		List<Person> retValue = new ArrayList<>();
+		
+		skipAssigned();
+		for(int i = this.cursor; i < this.members.size() && retValue.size() < max; i++) {
+			if(!this.members.get(i).isAssigned())
+				retValue.add(this.members.get(i));
+		}
+		
+		return retValue;
+	}
+	
+	/**
+	 * Check if some members are not assigned for the vaccination yet
+	 */
+	boolean hasUnassigned() {
+		skipAssigned();
+		return this.cursor < this.members.size();
+	}
+	
+	/**
+	 * Restart looking for unassigned members from the first one and
+	 * reset the number of allocated members, to be called when assignments are cleared
+	 */
+	void resetCursor() {
+		this.cursor = 0;
+		this.allocated = 0;
+	}
+	
+	private void skipAssigned() {
+		while(this.cursor < this.members.size() && this.members.get(this.cursor).isAssigned())
+			this.cursor++;
+	}
 
 }
@@ -13,6 +13,8 @@ public class Hub {
 	private int numOfDoctors;
 	private int numOfNurses;
 	private int numOfStaffs;
+	// Estimated hourly capacity, cached when the staff is configured; -1 if not estimated
+	private int hourlyCapacity;
 	
 	/**
 	 * Constructor of the Vaccination Hub
@@ -25,6 +27,7 @@ public class Hub {
 		this.numOfDoctors = 0;
 		this.numOfNurses = 0;
 		this.numOfStaffs = 0;
+		this.hourlyCapacity = -1;
 	}
 	
 	/**
@@ -38,6 +41,7 @@ public class Hub {
 		this.numOfDoctors = doctors;
 		this.numOfNurses = nurses;
 		this.numOfStaffs = other;
+		this.hourlyCapacity = -1;
 	}
 	
 	/**
@@ -59,6 +63,25 @@ public class Hub {
 	}
 
 	
+	/**
+	 * Getter for the cached hourly capacity of the hub
+	 * 
+	 * @return the hourly capacity, -1 if it was not estimated after the last staff configuration
+	 */
+	int getHourlyCapacity() {
+		return this.hourlyCapacity;
+	}
+	
+	/**
+	 * Setter for the cached hourly capacity of the hub
+	 * 
+	 * @param hourlyCapacity: the hourly capacity estimated for the current staff configuration
+	 */
+	void setHourlyCapacity(int hourlyCapacity) {
+		this.hourlyCapacity = hourlyCapacity;
+	}
+
+	
 	/**
 	 * Getter for the number of doctors inside an hub
 	 * 
@@ -5,37 +5,61 @@ import java.io.IOException;
 import java.io.Reader;
 import java.util.function.Consumer;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.stream.Collectors;
 import java.util.stream.Collectors.*;
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.LinkedHashMap;
 import java.util.function.BiConsumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
 
 public class Vaccines {
 	
 	// To make it work the way it was intended CURRENT_YEAR needs to be exactly 2021
 	public final static int CURRENT_YEAR= 2021; 
 	private final static String ACCEPTED_HEADER_CSV = "SSN,LAST,FIRST,YEAR";
+	// Lines of the CSV parsed together by loadPeople
+	private final static int LOAD_BATCH_LINES = 1 << 15;
 	
-	private List<Person> people;
+	// People indexed by SSN: lookups are O(1) while iteration keeps the insertion order
+	private Map<String, Person> people;
 	private List<AgeInterval> ageIntervals;
-	private List<Hub> hubs;
+	// Index of the age intervals by label, and lower ends of the intervals in order
+	private Map<String, AgeInterval> ageIntervalsByLabel;
+	private int[] lowerEnds;
+	// Hubs indexed by name, in order of definition
+	private Map<String, Hub> hubs;
 	private int[] hours;
+	// Available slots of each hub for the 7 days, computed on demand and discarded by setStaff() and setHours()
+	private Map<String, int[]> availability;
+	// Number of people assigned for the vaccination; the ones of each interval are counted by the interval
+	private long allocatedPeople;
+	// Listener of the load errors, and statistics of the last load
+	private BiConsumer<Integer,String> loadListener;
+	private long loadedRows;
+	private long rejectedRows;
+	private long loadNanos;
 	
 	/**
 	 * Constructor of Vaccines facade class
 	 */
 	public Vaccines() {
-		people = new LinkedList<>();
-		ageIntervals = new LinkedList<>();
-		hubs = new LinkedList<>();
+		people = new LinkedHashMap<>();
+		ageIntervals = new ArrayList<>();
+		ageIntervalsByLabel = new HashMap<>();
+		lowerEnds = new int[0];
+		hubs = new LinkedHashMap<>();
 		hours = null;
+		availability = new HashMap<>();
+		allocatedPeople = 0;
+		loadListener = null;
 	}
 	
 // R1
@@ -55,11 +79,13 @@ public class Vaccines {
 		
 		Boolean retValue;
 		
-		if(people.stream().anyMatch(p -> ssn.equals(p.getSSN()))) {
+		if(people.containsKey(ssn)) {
 			retValue = false;
 		}
 		else {
-			people.add(new Person(first, last, ssn, year));
+			Person pers = new Person(first, last, ssn, year);
+			people.put(ssn, pers);
+			addToAgeInterval(pers);
 			retValue = true;
 		}
 		
@@ -72,7 +98,7 @@ public class Vaccines {
 	 * @return person count
 	 */
 	public int countPeople() {
-		return ((int) people.stream().count());
+		return people.size();
 	}
 	
 	/**
@@ -85,34 +111,16 @@ public class Vaccines {
 	 */
 	public String getPerson(String ssn) {
 		
-		Person pers;
+		Person pers = people.get(ssn);
 		String retValue = null;
 		
-		if(people.stream().anyMatch(p -> ssn.equals(p.getSSN()))) {
-			pers = people.stream().filter(p -> ssn.equals(p.getSSN())).findAny().get();
+		if(pers != null) {
 			retValue = pers.getSSN() + "," + pers.getLastName() +  "," + pers.getFirstName();
 		}
 		
 		return retValue;
 	}
 	
-	/**
-	 * Private method used to write less code since this operation is used by a large number of method
-	 * Given an SSN, it finds the Person object which it represents
-	 * 
-	 * @param SSN: unique identifier for a person
-	 * @return pers: Person associated with the SSN
-	 */
-	private Optional<Person> getPersonObj(String ssn) {
-		
-		Optional<Person> pers = null;
-		
-		// If there is a match, it's sure to be the one searched because the SSN is a unique identifier
-		pers = this.people.stream().filter(p -> ssn.equals(p.getSSN())).findAny();		
-		return pers;
-	}
-	
-	
 	/**
 	 * Retrieves of a person given their SSN (codice fiscale).
 	 * 	 
@@ -121,11 +129,10 @@ public class Vaccines {
 	 */
 	public int getAge(String ssn) {
 		
-		Person pers;
+		Person pers = people.get(ssn);
 		int age = -1;
 		
-		if(people.stream().anyMatch(p -> ssn.equals(p.getSSN()))) {
-			pers = people.stream().filter(p -> ssn.equals(p.getSSN())).findAny().get();
+		if(pers != null) {
 			age = CURRENT_YEAR - pers.getBirthYear();
 		}
 		
@@ -141,11 +148,19 @@ public class Vaccines {
 	 * <p>
 	 * For instance {@code setAgeIntervals(40,50,60)} 
 	 * defines four intervals {@code "[0,40)", "[40,50)", "[50,60)", "[60,+)"}.
+	 * <p>
+	 * The breaks are expected in increasing order. Calling this method again
+	 * replaces the intervals previously defined, and the people are assigned
+	 * to the new ones.
 	 * 
 	 * @param breaks the array of breaks
 	 */
 	public void setAgeIntervals(int... breaks) {
 		
+		// A new definition replaces the previous one
+		ageIntervals.clear();
+		ageIntervalsByLabel.clear();
+		
 		ageIntervals.add(new AgeInterval(0, breaks[0]));
 		
 		for(int i = 1; i < breaks.length; i++)
@@ -153,6 +168,56 @@ public class Vaccines {
 		
 		ageIntervals.add(new AgeInterval(breaks[breaks.length-1], Integer.MAX_VALUE));
 		
+		for(AgeInterval a : ageIntervals)
+			ageIntervalsByLabel.put(a.getInterval(), a);
+		
+		lowerEnds = new int[ageIntervals.size()];
+		for(int i = 0; i < lowerEnds.length; i++)
+			lowerEnds[i] = ageIntervals.get(i).getLowerEnd();
+		
+		people.values().forEach(p -> addToAgeInterval(p));
+	}
+	
+	/**
+	 * Private method that finds the age interval of a person, if any,
+	 * by a binary search over the lower ends of the intervals
+	 * 
+	 * @param pers: the person
+	 * @return the interval, or {@code null} if no interval includes the age of the person
+	 */
+	private AgeInterval getAgeIntervalObj(Person pers) {
+		
+		int age = CURRENT_YEAR - pers.getBirthYear();
+		
+		// Last interval starting at or below the age
+		int low = 0;
+		int high = lowerEnds.length - 1;
+		
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			if(lowerEnds[mid] <= age)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+		
+		if(high < 0 || age >= ageIntervals.get(high).getUpperEnd())
+			return null;
+		
+		return ageIntervals.get(high);
+	}
+	
+	/**
+	 * Private method that adds a person to the bucket of its age interval
+	 * 
+	 * @param pers: the person
+	 */
+	private void addToAgeInterval(Person pers) {
+		
+		AgeInterval a = getAgeIntervalObj(pers);
+		
+		if(a != null)
+			a.addMember(pers);
 	}
 	
 	
@@ -181,10 +246,16 @@ public class Vaccines {
 	 */
 	public Collection<String> getInInterval(String interval){
 		
+		AgeInterval defined = ageIntervalsByLabel.get(interval);
+		
+		// Defined intervals keep their people in a bucket
+		if(defined != null)
+			return defined.getMembers().stream().map(p -> p.getSSN()).toList();
+		
 		AgeInterval a = AgeInterval.getAgeInterval(interval);
 		List<String> retValue = new LinkedList<>();
 		
-		this.people.stream().forEach(new Consumer<Person>() {
+		this.people.values().stream().forEach(new Consumer<Person>() {
 			public void accept(Person p) {
 				if(a.isInInterval(CURRENT_YEAR - p.getBirthYear()))
 					retValue.add(p.getSSN());
@@ -205,10 +276,10 @@ public class Vaccines {
 		
 		VaccineException ve = new VaccineException("This hub already exists!");
 		
-		if(hubs.stream().map(h -> h.getName()).anyMatch(s -> s.equals(name)))
+		if(hubs.containsKey(name))
 			throw ve;
 		
-		hubs.add(new Hub(name));
+		hubs.put(name, new Hub(name));
 	}
 		
 	/**
@@ -217,7 +288,7 @@ public class Vaccines {
 	 * @return hub names
 	 */
 	public Collection<String> getHubs() {
-		return hubs.stream().map(h -> h.getName()).toList();
+		return List.copyOf(hubs.keySet());
 	}
 
 	/**
@@ -235,19 +306,18 @@ public class Vaccines {
 		
 		VaccineException ve1 = new VaccineException("Hub not defined!");
 		VaccineException ve2 = new VaccineException("One or more values are not correct!");
-		Optional<Hub> opzH;
 		Hub h;
 		
 		if(doctors <= 0 || nurses <= 0 || other <= 0)
 			throw ve2;
 		
-		opzH = hubs.stream().filter(a -> a.getName().equals(name)).findAny();
-		if(opzH.isEmpty())
+		h = hubs.get(name);
+		if(h == null)
 			throw ve1;
 		
-		h = opzH.get();
 		h.setStaffConfiguration(doctors, nurses, other);
-				
+		// Only the availability of this hub changes
+		availability.remove(name);
 	}
 	
 	
@@ -266,18 +336,19 @@ public class Vaccines {
 		
 		VaccineException ve1 = new VaccineException("Hub not defined!");
 		VaccineException ve2 = new VaccineException("Staff not defined for this hub!");
-		Optional<Hub> opzH;
 		Hub h;
 		int estDoc, estNur, estOth, retValue;
 		
-		opzH = hubs.stream().filter(a -> a.getName().equals(hubName)).findAny();
-		if(opzH.isEmpty())
+		h = hubs.get(hubName);
+		if(h == null)
 			throw ve1;
 		
-		h = opzH.get();
 		if(h.isStaffDefined())
 			throw ve2;
 		
+		if(h.getHourlyCapacity() >= 0)
+			return h.getHourlyCapacity();
+		
 		estDoc = 10 * h.getNumOfDoctors();
 		estNur = 12 * h.getNumOfNurses();
 		estOth = 20 * h.getNumOfStaffs();
@@ -296,6 +367,7 @@ public class Vaccines {
 				retValue = estOth;
 		}
 		
+		h.setHourlyCapacity(retValue);
 		return retValue;
 	}
 	
@@ -316,27 +388,105 @@ public class Vaccines {
 	public long loadPeople(Reader people) throws IOException, VaccineException {
 		
 		VaccineException ve = new VaccineException("File header not recognized!");
-		BufferedReader br = new BufferedReader(people);
+		BufferedReader br = new BufferedReader(people, 1 << 16);
+		long start = System.nanoTime();
 		
 		String header = br.readLine();
 		String line = null;
-		String[] fields = null;
+		String[] batch = new String[LOAD_BATCH_LINES];
+		Person[] parsed = new Person[LOAD_BATCH_LINES];
+		int lineNumber = 1;
 		long counter = 0;
 		
-		if(!(header.contains(ACCEPTED_HEADER_CSV)))
+		this.loadedRows = 0;
+		this.rejectedRows = 0;
+		this.loadNanos = 0;
+		
+		if(header == null || !(header.contains(ACCEPTED_HEADER_CSV))) {
+			reject(lineNumber, header == null ? "" : header);
+			br.close();
 			throw ve;
-				
-		while((line = br.readLine()) != null) {
-			fields = line.split(",");
-			this.addPerson(fields[2], fields[1], fields[0], Integer.valueOf(fields[3]));
-			counter++;
 		}
-
+		
+		/*
+		 * Lines are read in batches: each batch is parsed in parallel, then the people
+		 * are added in the order of the file, so that the first occurrence of an SSN
+		 * is kept and the listener receives the errors in order.
+		 */
+		do {
+			int size = 0;
+			while(size < batch.length && (line = br.readLine()) != null)
+				batch[size++] = line;
+			
+			IntStream.range(0, size).parallel().forEach(i -> parsed[i] = parsePerson(batch[i]));
+			
+			for(int i = 0; i < size; i++) {
+				lineNumber++;
+				Person pers = parsed[i];
+				
+				if(pers == null || this.people.putIfAbsent(pers.getSSN(), pers) != null)
+					reject(lineNumber, batch[i]);
+				else {
+					addToAgeInterval(pers);
+					counter++;
+				}
+				
+				batch[i] = null;
+				parsed[i] = null;
+			}
+		} while(line != null);
 		
 		br.close();
+		this.loadedRows = counter;
+		this.loadNanos = System.nanoTime() - start;
 		return counter;
 	}
 	
+	/**
+	 * Private method that parses a line of the CSV file.
+	 * Only the first four fields are considered, any further field is ignored.
+	 * 
+	 * @param line: the line of the file
+	 * @return the person, or {@code null} if the line is incomplete or the year is not valid
+	 */
+	private static Person parsePerson(String line) {
+		
+		int[] commas = new int[3];
+		int found = 0;
+		
+		for(int i = 0; i < line.length() && found < commas.length; i++) {
+			if(line.charAt(i) == ',')
+				commas[found++] = i;
+		}
+		if(found < commas.length || commas[0] == 0)
+			return null;
+		
+		int yearEnd = line.indexOf(',', commas[2] + 1);
+		if(yearEnd < 0)
+			yearEnd = line.length();
+		
+		try {
+			int year = Integer.parseInt(line, commas[2] + 1, yearEnd, 10);
+			return new Person(line.substring(commas[1] + 1, commas[2]), line.substring(commas[0] + 1, commas[1]), line.substring(0, commas[0]), year);
+		}
+		catch(NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Private method that counts a discarded line and notifies the load listener, if any
+	 * 
+	 * @param lineNumber: number of the line, starting at 1 with the header
+	 * @param line: the line discarded
+	 */
+	private void reject(int lineNumber, String line) {
+		
+		this.rejectedRows++;
+		if(this.loadListener != null)
+			this.loadListener.accept(lineNumber, line);
+	}
+	
 	// R4
 	/**
 	 * Define the amount of working hours for the days of the week.
@@ -353,7 +503,9 @@ public class Vaccines {
 		if(hours.length != 7)
 			throw ve;
 		
-		this.hours = hours;		
+		// A copy is kept, so that the cached availability cannot be changed through the caller's array
+		this.hours = hours.clone();
+		availability.clear();
 	}
 	
 	/**
@@ -397,16 +549,32 @@ public class Vaccines {
 	 * @return
 	 */
 	public int getDailyAvailable(String hubName, int day){
+		return getWeekAvailable(hubName)[day];
+	}
+	
+	/**
+	 * Private method that retrieves the available slots of a hub for the 7 days,
+	 * computing them only the first time after the staff or the hours have been changed.
+	 * 
+	 * @param hubName: name of the hub
+	 * @return the available slots per day, -1 for every day if the hub or its staff is not defined
+	 */
+	private int[] getWeekAvailable(String hubName) {
 		
-		long hourlyEstimate;
-		int retValue;
+		int[] retValue = availability.get(hubName);
 		
-		try {
-			hourlyEstimate = estimateHourlyCapacity(hubName);
-			retValue = (int) (hourlyEstimate * this.hours[day]);
-		}
-		catch(VaccineException ve) {
-			retValue = -1;
+		if(retValue == null) {
+			retValue = new int[7];
+			try {
+				long hourlyEstimate = estimateHourlyCapacity(hubName);
+				for(int day = 0; day < 7; day++)
+					retValue[day] = (int) (hourlyEstimate * this.hours[day]);
+				availability.put(hubName, retValue);
+			}
+			catch(VaccineException ve) {
+				// Not cached: the hub may be defined or staffed later
+				Arrays.fill(retValue, -1);
+			}
 		}
 		
 		return retValue;
@@ -425,19 +593,15 @@ public class Vaccines {
 	 */
 	public Map<String,List<Integer>> getAvailable(){
 		
-		Map<String, List<Integer>> retValue = null;
-		Collection<String> hubsName = getHubs();
+		Map<String, List<Integer>> retValue = new LinkedHashMap<>();
 		List<Integer> weekCapacity = null;
-		String hubName;
 		
-		retValue = new HashMap(hubsName.size()/2);
-		for(Iterator<String> i = hubsName.iterator(); i.hasNext(); ) {
+		for(String hubName : hubs.keySet()) {
 			
-			weekCapacity = new LinkedList<>();
-			hubName = i.next();
+			weekCapacity = new ArrayList<>(7);
 			// Loop over the days of the week
-			for(int l = 0; l < 7; l++) 
-				weekCapacity.add(getDailyAvailable(hubName, l));
+			for(int available : getWeekAvailable(hubName)) 
+				weekCapacity.add(available);
 			
 			retValue.put(hubName, weekCapacity);			
 		}
@@ -463,8 +627,40 @@ public class Vaccines {
 	 */
 	public List<String> allocate(String hubName, int day){
 		
-		int dailyCapacity = getDailyAvailable(hubName, day);
-		long capacityPerAge;
+		List<AgeInterval> oldestFirst = getAgeIntervalsOldestFirst();
+		List<String> retValue = new ArrayList<>();
+		
+		distribute(getDailyAvailable(hubName, day), oldestFirst.size(),
+				i -> oldestFirst.get(i).hasUnassigned(),
+				(i, capacityPerAge) -> {
+					// Only the people not assigned yet are visited, starting from the cursor of the interval
+					List<Person> peopleToAdd = oldestFirst.get(i).nextUnassigned(capacityPerAge);
+					for(Person p : peopleToAdd) {
+						p.assignForVaccination(hubName, day);
+						retValue.add(p.getSSN());
+					}
+					oldestFirst.get(i).addAllocated(peopleToAdd.size());
+					allocatedPeople += peopleToAdd.size();
+					return peopleToAdd.size();
+				});
+		
+		return retValue;
+	}
+	
+	/**
+	 * Private method that distributes the places of a hub among the age intervals.
+	 * Starting with the oldest age interval, 40% of the places still available are given
+	 * to each interval; then the remaining places are given to the intervals in the
+	 * same order, until no place or no candidate is left.
+	 * 
+	 * @param dailyCapacity: number of places available
+	 * @param intervals: number of age intervals, the oldest first
+	 * @param hasCandidates: checks if an interval has people still to be allocated
+	 * @param allocator: allocates up to the given number of people of an interval, returning how many were allocated
+	 */
+	private void distribute(int dailyCapacity, int intervals, IntPredicate hasCandidates, IntBinaryOperator allocator) {
+		
+		int capacityPerAge;
 		
 		/**
 		 *  If every age interval has been selected at least once to assign people to the vaccination hub
@@ -472,55 +668,35 @@ public class Vaccines {
 		 *  and not n*0.4
 		 */		
 		Boolean oneRoundPerAgeComplete = false;
+		// When nobody is left to be allocated the remaining places stay free
+		Boolean candidatesLeft = true;
 		
-		Collection<String> ageIntervals = getAgeIntervals().stream().sorted(Collections.reverseOrder()).toList(); 
-		String ageInterval = null;
-		Collection<String> peopleInAgeInterval = null;
-		
-		Collection<Person> peopleToAdd = null;
-		Collection<String> ssnToAdd = null;
-		List<String> retValue = new LinkedList<>();
-		
-		while(dailyCapacity != 0) {
-			for(Iterator<String> i = ageIntervals.iterator(); i.hasNext(); ) {
-				
-				ageInterval = i.next();
-				peopleInAgeInterval = getInInterval(ageInterval);
-				peopleToAdd = new LinkedList<>();
+		while(dailyCapacity > 0 && candidatesLeft) {
+			candidatesLeft = false;
+			
+			for(int i = 0; i < intervals; i++) {
 				
 				if(!oneRoundPerAgeComplete)
 					capacityPerAge =  (int) (dailyCapacity*0.4); 
 				else
 					capacityPerAge = dailyCapacity;
 				
-				for(Iterator<String> l = peopleInAgeInterval.iterator(); l.hasNext(); ) {
-					
-					String SSN = l.next();
-					Person pers = getPersonObj(SSN).get();
-					
-					if(!(pers.isAssigned())) 
-						peopleToAdd.add(pers);
-					
-					
-				}
-				
-				// Limit the number of people to match the vaccination hub capacity
-				peopleToAdd = peopleToAdd.stream().limit(capacityPerAge).toList();
-				// Assign each of these to the vaccination hub
-				peopleToAdd.stream().forEach(p -> p.assignForVaccination(hubName, day));
-				// Get every person SSN to put into the list
-				ssnToAdd = peopleToAdd.stream().map(p -> p.getSSN()).toList();
-				retValue.addAll(ssnToAdd);		
-								
-				dailyCapacity = dailyCapacity - ssnToAdd.size();
+				dailyCapacity = dailyCapacity - allocator.applyAsInt(i, capacityPerAge);
+				if(hasCandidates.test(i))
+					candidatesLeft = true;
 				if(dailyCapacity == 0)
 					break;
-				
 			}
 			oneRoundPerAgeComplete = true;
 		}
-		
-		return retValue;
+	}
+	
+	/**
+	 * Private method that returns the age intervals sorted by decreasing lower end,
+	 * i.e. starting from the oldest people
+	 */
+	private List<AgeInterval> getAgeIntervalsOldestFirst() {
+		return ageIntervals.stream().sorted(Comparator.comparingInt(AgeInterval::getLowerEnd).reversed()).toList();
 	}
 	
 	/**
@@ -529,7 +705,9 @@ public class Vaccines {
 	 * 
 	 */
 	public void clearAllocation() {
-		this.people.stream().filter(p -> p.isAssigned()).forEach(p -> p.freeFromVaccination());
+		this.people.values().stream().filter(p -> p.isAssigned()).forEach(p -> p.freeFromVaccination());
+		this.ageIntervals.forEach(a -> a.resetCursor());
+		this.allocatedPeople = 0;
 	}
 	
 	/**
@@ -552,15 +730,74 @@ public class Vaccines {
 	 */
 	public List<Map<String,List<String>>> weekAllocate(){
 		
-		List<Map<String,List<String>>> retValue = new LinkedList<>();
-		Stream<Person> assignedPeople = this.people.stream().filter(p -> p.isAssigned()); 
+		List<AgeInterval> oldestFirst = getAgeIntervalsOldestFirst();
+		List<String> hubNames = new ArrayList<>(getHubs());
+		
+		// Candidates of each interval, in the same order allocate() would pick them
+		List<List<Person>> candidates = oldestFirst.stream()
+				.map(a -> a.getMembers().stream().filter(p -> !p.isAssigned()).toList())
+				.toList();
+		int[] taken = new int[oldestFirst.size()];
+		
+		/*
+		 * The plan is computed sequentially, counting people only: each (day, hub) slot
+		 * receives a list of segments (interval, first candidate, number of candidates).
+		 * Segments of different slots are disjoint, so they can be assigned in parallel
+		 * and the result is the same of calling allocate() for each day and hub.
+		 */
+		List<int[]> plans = new ArrayList<>(7 * hubNames.size());
+		for(int day = 0; day < 7; day++) {
+			for(String hubName : hubNames) {
+				List<Integer> segments = new ArrayList<>();
+				
+				distribute(getDailyAvailable(hubName, day), oldestFirst.size(),
+						i -> taken[i] < candidates.get(i).size(),
+						(i, capacityPerAge) -> {
+							int n = Math.min(capacityPerAge, candidates.get(i).size() - taken[i]);
+							if(n > 0) {
+								segments.add(i);
+								segments.add(taken[i]);
+								segments.add(n);
+								taken[i] += n;
+							}
+							return n;
+						});
+				
+				plans.add(segments.stream().mapToInt(Integer::intValue).toArray());
+			}
+		}
 		
-		for(int i = 0; i < 7; i++) {
-			//assignedPeople.collect(new Map<String, List<String>>, );
-			
+		List<List<String>> allocations = IntStream.range(0, plans.size()).parallel()
+				.mapToObj(slot -> {
+					String hubName = hubNames.get(slot % hubNames.size());
+					int day = slot / hubNames.size();
+					int[] segments = plans.get(slot);
+					List<String> allocation = new ArrayList<>();
+					
+					for(int k = 0; k < segments.length; k += 3) {
+						for(Person p : candidates.get(segments[k]).subList(segments[k+1], segments[k+1] + segments[k+2])) {
+							p.assignForVaccination(hubName, day);
+							allocation.add(p.getSSN());
+						}
+					}
+					return allocation;
+				})
+				.toList();
+		
+		for(int i = 0; i < taken.length; i++) {
+			oldestFirst.get(i).addAllocated(taken[i]);
+			allocatedPeople += taken[i];
+		}
+		
+		List<Map<String,List<String>>> retValue = new ArrayList<>();
+		for(int day = 0; day < 7; day++) {
+			Map<String,List<String>> dayAllocations = new LinkedHashMap<>();
+			for(int h = 0; h < hubNames.size(); h++)
+				dayAllocations.put(hubNames.get(h), allocations.get(day * hubNames.size() + h));
+			retValue.add(dayAllocations);
 		}
 		
-		return null;
+		return retValue;
 	}
 	
 	// R5
@@ -572,7 +809,11 @@ public class Vaccines {
 	 * @return proportion of allocated people
 	 */
 	public double propAllocated() {
-		return -1.0;
+		
+		if(people.isEmpty())
+			return 0.0;
+		
+		return (double) allocatedPeople / people.size();
 	}
 	
 	/**
@@ -586,7 +827,14 @@ public class Vaccines {
 	 * @return proportion of allocated people by age interval
 	 */
 	public Map<String,Double> propAllocatedAge(){
-		return null;
+		
+		Map<String,Double> retValue = new LinkedHashMap<>();
+		
+		// Counters are kept by the intervals, no person is visited
+		for(AgeInterval a : ageIntervals)
+			retValue.put(a.getInterval(), people.isEmpty() ? 0.0 : (double) a.getAllocated() / people.size());
+		
+		return retValue;
 	}
 
 	/**
@@ -600,7 +848,13 @@ public class Vaccines {
 	 * @return
 	 */
 	public Map<String,Double> distributionAllocated(){
-		return null;
+		
+		Map<String,Double> retValue = new LinkedHashMap<>();
+		
+		for(AgeInterval a : ageIntervals)
+			retValue.put(a.getInterval(), allocatedPeople == 0 ? 0.0 : (double) a.getAllocated() / allocatedPeople);
+		
+		return retValue;
 	}
 
 	// R6
@@ -614,6 +868,39 @@ public class Vaccines {
 	 * @param listener the listener for load errors
 	 */
 	public void setLoadListener(BiConsumer<Integer,String> listener) {
+		this.loadListener = listener;
+	}
+	
+	/**
+	 * Retrieves the number of people added by the last call to {@link #loadPeople}
+	 * 
+	 * @return number of people added
+	 */
+	public long getLoadedRows() {
+		return this.loadedRows;
+	}
+	
+	/**
+	 * Retrieves the number of lines discarded by the last call to {@link #loadPeople},
+	 * including a wrong header
+	 * 
+	 * @return number of lines discarded
+	 */
+	public long getRejectedRows() {
+		return this.rejectedRows;
+	}
+	
+	/**
+	 * Retrieves the throughput of the last call to {@link #loadPeople}
+	 * 
+	 * @return number of people added per second, 0 if nothing has been loaded
+	 */
+	public double getLoadRowsPerSecond() {
+		
+		if(this.loadNanos == 0)
+			return 0.0;
+		
+		return this.loadedRows * 1e9 / this.loadNanos;
 	}
 
 }
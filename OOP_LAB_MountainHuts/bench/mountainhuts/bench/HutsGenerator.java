@@ -0,0 +1,110 @@
+package mountainhuts.bench;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of synthetic mountain huts datasets.
+ *
+ * The rows follow the distribution of a sample file in the same format
+ * (by default {@code mountain_huts.csv}): each generated hut is derived from
+ * a hut of the sample picked at random, keeping its province, category and
+ * number of beds, the offset of its altitude from the municipality altitude
+ * and the chance of having no altitude at all.
+ * Municipalities are replicated so that each one hosts about as many huts
+ * as in the sample, and all names are made unique.
+ * <p>
+ * The same seed always produces the same file.
+ *
+ */
+public class HutsGenerator {
+
+	final static String HEADER = "Province;Municipality;MunicipalityAltitude;Name;Altitude;Category;BedsNumber";
+
+	private List<String[]> sample;
+	private Random random;
+
+	/**
+	 * Create a generator based on the given sample file.
+	 *
+	 * @param sampleFile: CSV file used as model of the distribution
+	 * @param seed: seed of the random generator
+	 * @throws IOException in case of errors while reading the sample
+	 */
+	public HutsGenerator(String sampleFile, long seed) throws IOException {
+
+		this.sample = new ArrayList<>();
+		this.random = new Random(seed);
+
+		try (BufferedReader in = Files.newBufferedReader(Path.of(sampleFile), StandardCharsets.UTF_8)) {
+			in.lines().skip(1).filter(l -> !l.isBlank()).forEach(l -> this.sample.add(l.split(";", -1)));
+		}
+	}
+
+	/**
+	 * Write a dataset with the given number of mountain huts.
+	 *
+	 * @param rows: number of mountain huts to generate
+	 * @param file: path of the output file
+	 * @throws IOException in case of errors while writing the file
+	 */
+	public void generate(int rows, String file) throws IOException {
+
+		// Each municipality of the sample is replicated, keeping the same number of huts per municipality
+		int replicas = Math.max(1, rows / this.sample.size());
+
+		try (BufferedWriter out = Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8)) {
+
+			out.write(HEADER);
+			out.newLine();
+
+			for(int i = 0; i < rows; i++) {
+				String[] hut = this.sample.get(this.random.nextInt(this.sample.size()));
+				int replica = this.random.nextInt(replicas);
+				int municipalityAltitude = Integer.parseInt(hut[2]) + (37 * replica) % 200;
+
+				out.write(hut[0]);
+				out.write(';');
+				out.write(replica == 0 ? hut[1] : hut[1] + " " + replica);
+				out.write(';');
+				out.write(Integer.toString(municipalityAltitude));
+				out.write(';');
+				out.write(hut[3] + " " + i);
+				out.write(';');
+				if(!hut[4].isBlank())
+					out.write(Integer.toString(municipalityAltitude + Integer.parseInt(hut[4]) - Integer.parseInt(hut[2])));
+				out.write(';');
+				out.write(hut[5]);
+				out.write(';');
+				out.write(hut[6]);
+				out.newLine();
+			}
+		}
+	}
+
+	/**
+	 * Generate a dataset from the command line.
+	 *
+	 * Arguments: number of rows, output file, optionally the seed and the sample file.
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if(args.length < 2) {
+			System.err.println("Usage: HutsGenerator <rows> <output> [seed] [sample]");
+			return;
+		}
+
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+		String sampleFile = args.length > 3 ? args[3] : "mountain_huts.csv";
+
+		new HutsGenerator(sampleFile, seed).generate(Integer.parseInt(args[0]), args[1]);
+	}
+
+}
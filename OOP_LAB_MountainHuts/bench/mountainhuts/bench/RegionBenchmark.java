@@ -0,0 +1,141 @@
+package mountainhuts.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import mountainhuts.MountainHut;
+import mountainhuts.Municipality;
+import mountainhuts.Region;
+
+/**
+ * Micro benchmarks for the {@link Region} facade.
+ *
+ * For every dataset size a file is generated with {@link HutsGenerator}
+ * (always with the same seed), then the loading from file, the
+ * {@code createOrGet*} methods and every aggregation method are measured.
+ * Each benchmark runs a number of warm-up iterations before the measured ones
+ * and the average time per operation is reported.
+ * <p>
+ * Arguments: the dataset sizes, by default 10000, 100000 and 1000000 rows.
+ * Sizes up to 10M rows require a suitably large heap (e.g. {@code -Xmx8g}).
+ *
+ */
+public class RegionBenchmark {
+
+	private final static int WARMUP_ITERATIONS = 3;
+	private final static int MEASURED_ITERATIONS = 5;
+	private final static long SEED = 1;
+
+	// Results are stored here so that the JIT cannot drop the measured code
+	static volatile Object sink;
+
+	private Map<String, Double> results;
+
+	public RegionBenchmark() {
+		this.results = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Run all the benchmarks on a dataset of the given size.
+	 *
+	 * @param rows: number of mountain huts in the dataset
+	 * @throws IOException in case of errors while generating the dataset
+	 */
+	public void run(int rows) throws IOException {
+
+		Path file = Files.createTempFile("huts-" + rows + "-", ".csv");
+
+		try {
+			new HutsGenerator("mountain_huts.csv", SEED).generate(rows, file.toString());
+
+			measure(rows, "fromFile", 1, () -> Region.fromFile("Bench", file.toString()));
+
+			Region region = Region.fromFile("Bench", file.toString());
+			region.setAltitudeRanges("0-1000", "1000-2000", "2000-3000");
+
+			List<Municipality> municipalities = new ArrayList<>(region.getMunicipalities());
+			List<MountainHut> huts = new ArrayList<>(region.getMountainHuts());
+
+			measure(rows, "createOrGetMunicipality (existing)", municipalities.size(), () -> {
+				Municipality last = null;
+				for(Municipality m : municipalities)
+					last = region.createOrGetMunicipality(m.getName(), m.getProvince(), m.getAltitude());
+				return last;
+			});
+
+			measure(rows, "createOrGetMountainHut (existing)", huts.size(), () -> {
+				MountainHut last = null;
+				for(MountainHut h : huts)
+					last = region.createOrGetMountainHut(h.getName(), h.getAltitude().orElse(null), h.getCategory(), h.getBedsNumber(), h.getMunicipality());
+				return last;
+			});
+
+			measure(rows, "createOrGet* (new)", huts.size(), () -> {
+				Region fresh = new Region("Bench");
+				for(MountainHut h : huts) {
+					Municipality m = h.getMunicipality();
+					fresh.createOrGetMountainHut(h.getName(), h.getAltitude().orElse(null), h.getCategory(), h.getBedsNumber(),
+							fresh.createOrGetMunicipality(m.getName(), m.getProvince(), m.getAltitude()));
+				}
+				return fresh;
+			});
+
+			measure(rows, "countMunicipalitiesPerProvince", 1, region::countMunicipalitiesPerProvince);
+			measure(rows, "countMountainHutsPerMunicipalityPerProvince", 1, region::countMountainHutsPerMunicipalityPerProvince);
+			measure(rows, "countMountainHutsPerAltitudeRange", 1, region::countMountainHutsPerAltitudeRange);
+			measure(rows, "totalBedsNumberPerProvince", 1, region::totalBedsNumberPerProvince);
+			measure(rows, "maximumBedsNumberPerAltitudeRange", 1, region::maximumBedsNumberPerAltitudeRange);
+			measure(rows, "municipalityNamesPerCountOfMountainHuts", 1, region::municipalityNamesPerCountOfMountainHuts);
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/**
+	 * Measure the average time of a benchmark.
+	 *
+	 * @param rows: size of the dataset, used to label the result
+	 * @param name: name of the benchmark
+	 * @param operations: number of operations performed by each invocation
+	 * @param benchmark: the code to be measured
+	 */
+	private void measure(int rows, String name, int operations, Supplier<?> benchmark) {
+
+		for(int i = 0; i < WARMUP_ITERATIONS; i++)
+			sink = benchmark.get();
+
+		long start = System.nanoTime();
+		for(int i = 0; i < MEASURED_ITERATIONS; i++)
+			sink = benchmark.get();
+		double nanosPerOp = (double) (System.nanoTime() - start) / MEASURED_ITERATIONS / operations;
+
+		this.results.put(rows + " " + name, nanosPerOp);
+		System.out.printf("%10d  %-45s %15.1f ns/op%n", rows, name, nanosPerOp);
+	}
+
+	/**
+	 * Results of the benchmarks run so far, in nanoseconds per operation
+	 */
+	public Map<String, Double> getResults() {
+		return this.results;
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		int[] sizes = args.length == 0 ? new int[] {10_000, 100_000, 1_000_000} : new int[args.length];
+		for(int i = 0; i < args.length; i++)
+			sizes[i] = Integer.parseInt(args[i]);
+
+		RegionBenchmark benchmark = new RegionBenchmark();
+		for(int rows : sizes)
+			benchmark.run(rows);
+	}
+
+}
@@ -2,10 +2,18 @@ import mountainhuts.*;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.Test;
 
@@ -58,4 +66,311 @@ public class ExampleTest {
 
 	}
 
+	@Test
+	public void testReloadAfterUnterminatedLine() throws IOException {
+
+		Path file = Files.createTempFile("mountain_huts", ".csv");
+		try {
+			// The last line has no terminator: it is read by fromFile anyway
+			Files.writeString(file, "Province;Municipality;MunicipalityAltitude;Name;Altitude;Category;BedsNumber\n"
+					+ "TO;A;100;H1;;Rifugio;1\n"
+					+ "TO;A;100;H2;;Rifugio;2\n"
+					+ "TO;A;100;H3;;Rifugio;3");
+
+			List<Long> rejected = new ArrayList<>();
+			Region r = Region.fromFile("Test", file.toString(), new LoadListener() {
+				public void lineRejected(long lineNumber, String line, String reason) {
+					rejected.add(lineNumber);
+				}
+			});
+			assertNotNull("Missing region", r);
+			assertEquals("Wrong number of mountain huts", 3, r.getMountainHuts().size());
+
+			// The terminator of line 4 is appended together with the new lines
+			Files.writeString(file, "\nTO;C;300;H4;;Rifugio;7\nbad line\nTO;C;300;H5;;Rifugio;8\n", StandardOpenOption.APPEND);
+			assertEquals("Wrong number of mountain huts reloaded", 2, r.reload());
+			assertEquals("Wrong rejected lines", List.of(6L), rejected);
+
+			Files.writeString(file, "bad line\n", StandardOpenOption.APPEND);
+			assertEquals("Wrong number of mountain huts reloaded", 0, r.reload());
+			assertEquals("Wrong rejected lines", List.of(6L, 8L), rejected);
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testLoadReport() throws IOException {
+
+		Path file = Files.createTempFile("mountain_huts", ".csv");
+		try {
+			String content = "Province;Municipality;MunicipalityAltitude;Name;Altitude;Category;BedsNumber\n"
+					+ "TO;A;100;H1;;Rifugio;1\n"
+					+ "TO;A;100;H2;abc;Rifugio;2\n"
+					+ "\n"
+					+ "TO;A;100\n"
+					+ "TO;B;200;H3;1500;Bivacco;3\n";
+			Files.writeString(file, content);
+
+			List<LoadReport> completed = new ArrayList<>();
+			Region r = Region.fromFile("Test", file.toString(), new LoadListener() {
+				public void loadCompleted(LoadReport report) {
+					completed.add(report);
+				}
+			});
+			assertNotNull("Missing region", r);
+
+			LoadReport report = r.getLoadReport();
+			assertNotNull("Missing load report", report);
+			assertEquals("Wrong listener notifications", List.of(report), completed);
+			assertEquals("Wrong number of rows", 2, report.getRows());
+			assertEquals("Wrong number of bytes", content.length(), report.getBytes());
+			assertEquals("Wrong number of rejected lines", 2, report.getRejectedCount());
+			assertEquals("Wrong rejected lines", Map.of(3L, "TO;A;100;H2;abc;Rifugio;2", 5L, "TO;A;100"), report.getRejectedLines());
+			assertEquals("Wrong order of rejected lines", List.of(3L, 5L), new ArrayList<>(report.getRejectedLines().keySet()));
+			assertFalse("Negative elapsed time", report.getElapsedTime().isNegative());
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testSnapshotRoundTrip() throws IOException {
+
+		Region r = Region.fromFile("Piemonte", "mountain_huts.csv");
+		r.setAltitudeRanges("0-1000", "1000-2000", "2000-3000");
+
+		Path file = Files.createTempFile("mountain_huts", ".snapshot");
+		try {
+			r.saveSnapshot(file.toString());
+			Region s = Region.fromSnapshot(file.toString());
+			assertNotNull("Missing region", s);
+
+			assertEquals("Wrong region name", r.getName(), s.getName());
+			assertEquals("Wrong value in range", "1000-2000", s.getAltitudeRange(1500));
+			assertEquals("Wrong municipalities", describeMunicipalities(r.getMunicipalities()), describeMunicipalities(s.getMunicipalities()));
+			assertEquals("Wrong mountain huts", describeMountainHuts(r.getMountainHuts()), describeMountainHuts(s.getMountainHuts()));
+			assertStatisticsEquals(r, s);
+
+			// The name indexes are rebuilt: existing objects are returned
+			MountainHut hut = r.getMountainHuts().iterator().next();
+			MountainHut loaded = s.createOrGetMountainHut(hut.getName(), "Other", 1, s.getMunicipalities().iterator().next());
+			assertEquals("Wrong mountain hut returned", describe(hut), describe(loaded));
+			assertEquals("Wrong number of mountain huts", 167, s.getMountainHuts().size());
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testFederationMatchesMergedRegion() throws IOException {
+
+		// The rows are dealt to three regions, so that most municipalities are shared
+		List<String> lines = Files.readAllLines(Path.of("mountain_huts.csv"));
+		List<Path> files = new ArrayList<>();
+		try {
+			RegionFederation federation = new RegionFederation();
+			federation.setAltitudeRanges("0-1000", "1000-2000", "2000-3000");
+			for(int i = 0; i < 3; i++) {
+				List<String> part = new ArrayList<>();
+				part.add(lines.get(0));
+				for(int j = 1 + i; j < lines.size(); j += 3)
+					part.add(lines.get(j));
+				Path file = Files.createTempFile("mountain_huts", ".csv");
+				files.add(file);
+				Files.write(file, part);
+				federation.addRegion(Region.fromFile("Part" + i, file.toString()));
+			}
+
+			Region r = Region.fromFile("Piemonte", "mountain_huts.csv");
+			r.setAltitudeRanges("0-1000", "1000-2000", "2000-3000");
+
+			assertEquals("Wrong count of municipalities per province", r.countMunicipalitiesPerProvince(), federation.countMunicipalitiesPerProvince());
+			assertEquals("Wrong count of mountain huts per municipality per province", r.countMountainHutsPerMunicipalityPerProvince(), federation.countMountainHutsPerMunicipalityPerProvince());
+			assertEquals("Wrong count of mountain huts per altitude range", r.countMountainHutsPerAltitudeRange(), federation.countMountainHutsPerAltitudeRange());
+			assertEquals("Wrong total beds number per province", r.totalBedsNumberPerProvince(), federation.totalBedsNumberPerProvince());
+			assertEquals("Wrong maximum beds number per altitude range", r.maximumBedsNumberPerAltitudeRange(), federation.maximumBedsNumberPerAltitudeRange());
+			assertEquals("Wrong municipality names per count of mountain huts", r.municipalityNamesPerCountOfMountainHuts(), federation.municipalityNamesPerCountOfMountainHuts());
+
+			// A change of a region is seen by the next query
+			Region first = federation.getRegions().iterator().next();
+			first.createOrGetMountainHut("New hut", 1500, "Rifugio", 10, first.createOrGetMunicipality("New municipality", "TORINO", 1000));
+			assertEquals("Wrong number of municipalities in province of Torino", Long.valueOf(25), federation.countMunicipalitiesPerProvince().get("TORINO"));
+			assertEquals("Wrong number of beds number in province of Torino", Integer.valueOf(963), federation.totalBedsNumberPerProvince().get("TORINO"));
+		}
+		finally {
+			for(Path file : files)
+				Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testCubeMatchesScan() {
+
+		Region r = Region.fromFile("Piemonte", "mountain_huts.csv");
+		r.setAltitudeRanges("0-1000", "1000-2000", "2000-3000");
+
+		Set<String> provinces = new HashSet<>();
+		Set<String> categories = new HashSet<>();
+		Set<String> ranges = new HashSet<>();
+		for(MountainHut h : r.getMountainHuts()) {
+			provinces.add(h.getMunicipality().getProvince());
+			categories.add(h.getCategory());
+			ranges.add(rangeOf(r, h));
+		}
+		// Values without any mountain hut give empty slices
+		provinces.add("AOSTA");
+		provinces.add(null);
+		categories.add(null);
+		ranges.add(null);
+
+		for(String province : provinces)
+			for(String category : categories)
+				for(String range : ranges) {
+					long count = 0;
+					long beds = 0;
+					Optional<Integer> max = Optional.empty();
+					for(MountainHut h : r.getMountainHuts()) {
+						if((province == null || province.equals(h.getMunicipality().getProvince()))
+								&& (category == null || category.equals(h.getCategory()))
+								&& (range == null || range.equals(rangeOf(r, h)))) {
+							count++;
+							beds += h.getBedsNumber();
+							if(max.isEmpty() || h.getBedsNumber() > max.get())
+								max = Optional.of(h.getBedsNumber());
+						}
+					}
+					String slice = province + ", " + category + ", " + range;
+					assertEquals("Wrong count of mountain huts in " + slice, count, r.countMountainHuts(province, category, range));
+					assertEquals("Wrong total beds number in " + slice, beds, r.totalBedsNumber(province, category, range));
+					assertEquals("Wrong maximum beds number in " + slice, max, r.maximumBedsNumber(province, category, range));
+				}
+	}
+
+	@Test
+	public void testScanMatchesRegion() throws IOException {
+
+		// Malformed lines are appended, to be skipped by both
+		Path file = Files.createTempFile("mountain_huts", ".csv");
+		try {
+			List<String> lines = new ArrayList<>(Files.readAllLines(Path.of("mountain_huts.csv")));
+			lines.add("");
+			lines.add("TORINO;New;abc;New hut 1;;Rifugio;10");
+			lines.add("TORINO;New;1000;New hut 2;1500;Rifugio");
+			lines.add("TORINO;New;1000;New hut 3;1500;Rifugio;x");
+			lines.add("CUNEO;Newer;1200;New hut 4;;Rifugio;7");
+			Files.write(file, lines);
+
+			String[] ranges = { "0-1000", "1000-2000", "2000-3000" };
+			Region r = Region.fromFile("Piemonte", file.toString());
+			r.setAltitudeRanges(ranges);
+
+			assertEquals("Wrong count of municipalities per province", r.countMunicipalitiesPerProvince(), RegionScan.countMunicipalitiesPerProvince(file.toString()));
+			assertEquals("Wrong count of mountain huts per altitude range", r.countMountainHutsPerAltitudeRange(), RegionScan.countMountainHutsPerAltitudeRange(file.toString(), ranges));
+			assertEquals("Wrong total beds number per province", r.totalBedsNumberPerProvince(), RegionScan.totalBedsNumberPerProvince(file.toString()));
+			assertEquals("Wrong maximum beds number per altitude range", r.maximumBedsNumberPerAltitudeRange(), RegionScan.maximumBedsNumberPerAltitudeRange(file.toString(), ranges));
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testSearchMountainHuts() {
+
+		Region r = Region.fromFile("Piemonte", "mountain_huts.csv");
+
+		List<MountainHut> res = r.searchMountainHuts("alpe forn", 5);
+		assertNotNull("Missing search result", res);
+		assertTrue("Too many mountain huts", res.size() <= 5);
+		assertEquals("Wrong mountain hut for a prefix", "ALPE FORNA'", res.get(0).getName());
+
+		res = r.searchMountainHuts("alpe gatascosa", 5);
+		assertEquals("Wrong mountain hut for a misspelled name", "ALPE GATTASCOSA", res.get(0).getName());
+
+		// Huts added after a search are found by the next one
+		r.createOrGetMountainHut("Capanna Vallot", 4362, "Rifugio Alpino", 140, r.getMunicipalities().iterator().next());
+		res = r.searchMountainHuts("capanna vallot", 1);
+		assertEquals("Wrong number of mountain huts", 1, res.size());
+		assertEquals("Wrong mountain hut added after a search", "Capanna Vallot", res.get(0).getName());
+	}
+
+	@Test
+	public void testAggregateMatchesScan() {
+
+		Region r = Region.fromFile("Piemonte", "mountain_huts.csv");
+		r.setAltitudeRanges("0-1000", "1000-2000", "2000-3000");
+		// A hut without any altitude is left out of the aggregates of the altitude
+		r.createOrGetMountainHut("New hut", null, "Rifugio", 10, r.createOrGetMunicipality("New municipality", "TORINO", null));
+
+		for(HutQuery.Dimension dimension : HutQuery.Dimension.values()) {
+			for(HutQuery.Measure measure : HutQuery.Measure.values()) {
+				Map<String, Long> count = new HashMap<>();
+				Map<String, Long> sum = new HashMap<>();
+				Map<String, Long> min = new HashMap<>();
+				Map<String, Long> max = new HashMap<>();
+				for(MountainHut h : r.getMountainHuts()) {
+					String group = group(r, dimension, h);
+					count.merge(group, 1L, Long::sum);
+					Integer value = measure == HutQuery.Measure.BEDS ? h.getBedsNumber() : h.getAltitude().orElse(h.getMunicipality().getAltitude());
+					if(value != null) {
+						sum.merge(group, (long) value, Long::sum);
+						min.merge(group, (long) value, Math::min);
+						max.merge(group, (long) value, Math::max);
+					}
+				}
+				HutQuery.Builder query = HutQuery.groupBy(dimension);
+				assertEquals("Wrong result of " + query.count(), count, r.aggregate(query.count()));
+				assertEquals("Wrong result of " + query.sum(measure), sum, r.aggregate(query.sum(measure)));
+				assertEquals("Wrong result of " + query.min(measure), min, r.aggregate(query.min(measure)));
+				assertEquals("Wrong result of " + query.max(measure), max, r.aggregate(query.max(measure)));
+			}
+		}
+	}
+
+	private static void assertStatisticsEquals(Region expected, Region actual) {
+		assertEquals("Wrong count of municipalities per province", expected.countMunicipalitiesPerProvince(), actual.countMunicipalitiesPerProvince());
+		assertEquals("Wrong count of mountain huts per municipality per province", expected.countMountainHutsPerMunicipalityPerProvince(), actual.countMountainHutsPerMunicipalityPerProvince());
+		assertEquals("Wrong count of mountain huts per altitude range", expected.countMountainHutsPerAltitudeRange(), actual.countMountainHutsPerAltitudeRange());
+		assertEquals("Wrong total beds number per province", expected.totalBedsNumberPerProvince(), actual.totalBedsNumberPerProvince());
+		assertEquals("Wrong maximum beds number per altitude range", expected.maximumBedsNumberPerAltitudeRange(), actual.maximumBedsNumberPerAltitudeRange());
+		assertEquals("Wrong municipality names per count of mountain huts", expected.municipalityNamesPerCountOfMountainHuts(), actual.municipalityNamesPerCountOfMountainHuts());
+	}
+
+	private static List<String> describeMunicipalities(Collection<Municipality> municipalities) {
+		List<String> retValue = new ArrayList<>();
+		municipalities.forEach(m -> retValue.add(m.getName() + ";" + m.getProvince() + ";" + m.getAltitude()));
+		return retValue;
+	}
+
+	private static List<String> describeMountainHuts(Collection<MountainHut> huts) {
+		List<String> retValue = new ArrayList<>();
+		huts.forEach(h -> retValue.add(describe(h)));
+		return retValue;
+	}
+
+	private static String group(Region r, HutQuery.Dimension dimension, MountainHut h) {
+		switch(dimension) {
+		case PROVINCE:
+			return h.getMunicipality().getProvince();
+		case MUNICIPALITY:
+			return h.getMunicipality().getName();
+		case CATEGORY:
+			return h.getCategory();
+		default:
+			return h.getAltitude().isPresent() || h.getMunicipality().getAltitude() != null ? rangeOf(r, h) : "0-INF";
+		}
+	}
+
+	private static String rangeOf(Region r, MountainHut h) {
+		return r.getAltitudeRange(h.getAltitude().orElse(h.getMunicipality().getAltitude()));
+	}
+
+	private static String describe(MountainHut h) {
+		return h.getName() + ";" + h.getAltitude() + ";" + h.getCategory() + ";" + h.getBedsNumber() + ";" + h.getMunicipality().getName();
+	}
+
 }
@@ -0,0 +1,113 @@
+package mountainhuts;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Compiled form of the altitude ranges of a {@link Region}.
+ *
+ * The textual ranges "[minValue]-[maxValue]" are parsed once and turned into
+ * a sorted array of boundaries splitting the altitudes into disjoint segments,
+ * each one associated with the range it belongs to.
+ * Finding the range of an altitude is then a binary search that does not allocate.
+ *
+ */
+class AltitudeRangeIndex {
+
+	/**
+	 * Index returned when an altitude is not included in any range
+	 */
+	final static int NO_RANGE = -1;
+
+	private String[] labels;
+	private long[] boundaries;
+	private int[] segmentRanges;
+	private Map<String, Integer> labelIndexes;
+
+	/*
+	 * Constructor of the AltitudeRangeIndex class
+	 *
+	 * @param ranges: an array of textual ranges
+	 */
+	AltitudeRangeIndex(String... ranges) {
+
+		int[] minValues = new int[ranges.length];
+		long[] maxValues = new long[ranges.length];
+		TreeSet<Long> points = new TreeSet<>();
+
+		this.labels = new String[ranges.length];
+		this.labelIndexes = new HashMap<>();
+		for(int i = 0; i < ranges.length; i++) {
+			String[] range = ranges[i].split("-");
+
+			this.labels[i] = ranges[i].intern();
+			this.labelIndexes.put(this.labels[i], i);
+			minValues[i] = Integer.parseInt(range[0]);
+			maxValues[i] = Integer.parseInt(range[1]);
+
+			// Ranges are closed at both ends: each one covers [min, max+1)
+			points.add((long) minValues[i]);
+			points.add(maxValues[i] + 1);
+		}
+
+		this.boundaries = points.stream().mapToLong(Long::longValue).toArray();
+		this.segmentRanges = new int[this.boundaries.length];
+		Arrays.fill(this.segmentRanges, NO_RANGE);
+
+		// When ranges overlap (e.g. on a shared boundary) the one defined last wins
+		for(int s = 0; s < this.boundaries.length - 1; s++) {
+			for(int i = 0; i < ranges.length; i++) {
+				if(this.boundaries[s] >= minValues[i] && this.boundaries[s] <= maxValues[i])
+					this.segmentRanges[s] = i;
+			}
+		}
+	}
+
+	/**
+	 * Find the range including the given altitude.
+	 *
+	 * @param altitude: the geographical altitude
+	 * @return the index of the range, or {@link #NO_RANGE} if there is none
+	 */
+	int rangeOf(int altitude) {
+
+		int low = 0;
+		int high = this.boundaries.length - 1;
+
+		// Look for the last boundary not greater than the altitude
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			if(this.boundaries[mid] <= altitude)
+				low = mid + 1;
+			else
+				high = mid - 1;
+		}
+
+		return high < 0 ? NO_RANGE : this.segmentRanges[high];
+	}
+
+	/**
+	 * Number of ranges defined
+	 */
+	int size() {
+		return this.labels.length;
+	}
+
+	/**
+	 * Textual representation of the range with the given index
+	 */
+	String label(int range) {
+		return this.labels[range];
+	}
+
+	/**
+	 * Index of the range with the given textual representation,
+	 * or {@link #NO_RANGE} if it has not been defined
+	 */
+	int indexOf(String label) {
+		return this.labelIndexes.getOrDefault(label, NO_RANGE);
+	}
+
+}
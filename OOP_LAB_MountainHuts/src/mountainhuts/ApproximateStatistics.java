@@ -0,0 +1,249 @@
+package mountainhuts;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * Statistics of a very large mountain huts dataset computed in bounded memory.
+ *
+ * The file is scanned once and no municipality or mountain hut is kept: every
+ * row is accounted for into fixed-size structures, so that the memory used
+ * only depends on the number of provinces and altitude ranges, besides the
+ * fixed number of municipality names tracked for the most common municipalities.
+ * <ul>
+ * <li>the number of huts per altitude range, the total number of beds per
+ * province and the maximum number of beds per altitude range are exact;
+ * <li>the number of distinct municipalities per province is estimated with a
+ * HyperLogLog, with relative standard error about 1.6%;
+ * <li>the quantiles of the number of beds per altitude range are estimated
+ * with a logarithmic sketch, with relative error at most 1%;
+ * <li>the number of huts in a municipality is estimated with a count-min sketch:
+ * it is never lower than the exact value and it exceeds it by more than
+ * 1e-5 times the number of rows with probability less than 1%;
+ * <li>the municipality names per number of mountain huts are kept only for the
+ * {@value #TOP_MUNICIPALITIES} municipalities with the highest estimates when their
+ * rows were added, and the numbers are the count-min estimates.
+ * </ul>
+ * Unlike {@link Region}, each row counts as a distinct mountain hut, even
+ * when the same name appears more than once.
+ *
+ */
+public class ApproximateStatistics {
+
+	public final static int TOP_MUNICIPALITIES = 1000;
+
+	private String name;
+	private AltitudeRangeIndex ranges;
+	private long rows;
+
+	private Map<String, HyperLogLog> municipalitiesPerProvince;
+	private Map<String, Long> bedsPerProvince;
+	private long[] hutsPerRange;
+	private int[] maxBedsPerRange;
+	private QuantileSketch[] bedsPerRange;
+	private CountMinSketch hutsPerMunicipality;
+	private HeavyHitters topMunicipalities;
+
+	/**
+	 * Create empty statistics for the given region and altitude ranges.
+	 *
+	 * @param name: the name of the region
+	 * @param ranges: the altitude ranges in the format "[minValue]-[maxValue]"
+	 */
+	public ApproximateStatistics(String name, String... ranges) {
+		this.name = name;
+		this.ranges = new AltitudeRangeIndex(ranges);
+		this.rows = 0;
+		this.municipalitiesPerProvince = new HashMap<>();
+		this.bedsPerProvince = new HashMap<>();
+		this.hutsPerRange = new long[ranges.length + 1];
+		this.maxBedsPerRange = new int[ranges.length + 1];
+		this.bedsPerRange = new QuantileSketch[ranges.length + 1];
+		for(int r = 0; r < this.bedsPerRange.length; r++)
+			this.bedsPerRange[r] = new QuantileSketch();
+		this.hutsPerMunicipality = new CountMinSketch();
+		this.topMunicipalities = new HeavyHitters(TOP_MUNICIPALITIES);
+	}
+
+	/**
+	 * Factory method that computes the approximate statistics of a file in the
+	 * same format accepted by {@link Region#fromFile(String, String)}.
+	 *
+	 * @param name: the name of the region
+	 * @param file: the path of the file
+	 * @param ranges: the altitude ranges in the format "[minValue]-[maxValue]"
+	 * @return the statistics, or {@code null} in case of errors while reading the file
+	 */
+	public static ApproximateStatistics fromFile(String name, String file, String... ranges) {
+
+		ApproximateStatistics retValue = new ApproximateStatistics(name, ranges);
+
+		try {
+			new RegionLoader().load(retValue::add, file, 0, 1, true, null);
+		}
+		catch(IOException e) {
+			System.err.println(e.getMessage());
+			return null;
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Account for a row of the file
+	 */
+	void add(HutRow row) {
+
+		int altitude = row.altitude != null ? row.altitude : row.municipalityAltitude;
+		int range = this.ranges.rangeOf(altitude);
+		int slot = range == AltitudeRangeIndex.NO_RANGE ? this.ranges.size() : range;
+
+		this.rows++;
+		this.municipalitiesPerProvince.computeIfAbsent(row.province, p -> new HyperLogLog()).add(row.municipality);
+		this.bedsPerProvince.merge(row.province, (long) row.bedsNumber, Long::sum);
+
+		if(this.hutsPerRange[slot] == 0 || row.bedsNumber > this.maxBedsPerRange[slot])
+			this.maxBedsPerRange[slot] = row.bedsNumber;
+		this.hutsPerRange[slot]++;
+		this.bedsPerRange[slot].add(row.bedsNumber);
+
+		this.topMunicipalities.offer(row.municipality, this.hutsPerMunicipality.add(row.municipality));
+	}
+
+	/**
+	 * Return the name of the region.
+	 *
+	 * @return the name of the region
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Return the number of rows accounted for.
+	 *
+	 * @return the number of mountain huts
+	 */
+	public long getMountainHutsCount() {
+		return this.rows;
+	}
+
+	/**
+	 * Estimate the number of distinct municipalities per each province.
+	 *
+	 * @return a map with the province as key and the estimated number of municipalities as value
+	 */
+	public Map<String, Long> countMunicipalitiesPerProvince() {
+
+		Map<String, Long> retValue = new HashMap<>();
+
+		this.municipalitiesPerProvince.forEach((province, sketch) -> retValue.put(province, sketch.estimate()));
+
+		return retValue;
+	}
+
+	/**
+	 * Count the number of mountain huts per altitude range. If the altitude of the
+	 * mountain hut is not available, use the altitude of its municipality.
+	 *
+	 * @return a map with the altitude range as key and the number of mountain huts as value
+	 */
+	public Map<String, Long> countMountainHutsPerAltitudeRange() {
+
+		Map<String, Long> retValue = new HashMap<>();
+
+		for(int r = 0; r < this.hutsPerRange.length; r++) {
+			if(this.hutsPerRange[r] > 0)
+				retValue.put(rangeLabel(r), this.hutsPerRange[r]);
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Compute the total number of beds per each province.
+	 *
+	 * @return a map with the province as key and the total number of beds as value
+	 */
+	public Map<String, Long> totalBedsNumberPerProvince() {
+		return new HashMap<>(this.bedsPerProvince);
+	}
+
+	/**
+	 * Compute the maximum number of beds in a single mountain hut per altitude range.
+	 *
+	 * @return a map with the altitude range as key and the maximum number of beds as value
+	 */
+	public Map<String, Optional<Integer>> maximumBedsNumberPerAltitudeRange() {
+
+		Map<String, Optional<Integer>> retValue = new HashMap<>();
+
+		for(int r = 0; r < this.hutsPerRange.length; r++) {
+			if(this.hutsPerRange[r] > 0)
+				retValue.put(rangeLabel(r), Optional.of(this.maxBedsPerRange[r]));
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Estimate a quantile of the number of beds of the mountain huts in an altitude range,
+	 * e.g. 0.5 for the median, with relative error at most 1%.
+	 *
+	 * @param altitudeRange: the altitude range, or "0-INF" for the default range
+	 * @param quantile: the quantile, between 0 and 1
+	 * @return the estimated number of beds, empty if the range contains no mountain huts
+	 */
+	public Optional<Double> bedsNumberQuantile(String altitudeRange, double quantile) {
+
+		int slot = altitudeRange.equals(Region.NO_RANGE) ? this.ranges.size() : this.ranges.indexOf(altitudeRange);
+
+		if(slot == AltitudeRangeIndex.NO_RANGE || this.bedsPerRange[slot].count() == 0)
+			return Optional.empty();
+
+		return Optional.of(this.bedsPerRange[slot].quantile(quantile));
+	}
+
+	/**
+	 * Estimate the number of mountain huts in a municipality.
+	 * The estimate is never lower than the exact number.
+	 *
+	 * @param municipality: the name of the municipality
+	 * @return the estimated number of mountain huts
+	 */
+	public long estimateMountainHutsInMunicipality(String municipality) {
+		return this.hutsPerMunicipality.estimate(municipality);
+	}
+
+	/**
+	 * Estimate the municipality names per number of mountain huts in a municipality,
+	 * limited to the {@value #TOP_MUNICIPALITIES} municipalities with the most mountain huts.
+	 * The numbers are estimates never lower than the exact ones; every municipality
+	 * having more mountain huts than the lowest number in the map is included, while
+	 * a municipality not included may have a higher estimate, because of collisions.
+	 * The lists of municipality names are in alphabetical order.
+	 *
+	 * @return a map with the estimated number of mountain huts in a municipality as key
+	 *         and a list of municipality names as value
+	 */
+	public Map<Long, List<String>> municipalityNamesPerCountOfMountainHuts() {
+
+		Map<Long, List<String>> retValue = new HashMap<>();
+
+		// The estimates are read again: they may have grown since a name was last added
+		new TreeSet<>(this.topMunicipalities.values()).forEach(municipality ->
+			retValue.computeIfAbsent(this.hutsPerMunicipality.estimate(municipality), c -> new ArrayList<>()).add(municipality));
+
+		return retValue;
+	}
+
+	private String rangeLabel(int slot) {
+		return slot == this.ranges.size() ? Region.NO_RANGE : this.ranges.label(slot);
+	}
+
+}
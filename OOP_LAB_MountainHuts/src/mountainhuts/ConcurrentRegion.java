@@ -0,0 +1,333 @@
+package mountainhuts;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe variant of {@link Region}, for many threads reading
+ * statistics while other threads add municipalities and mountain huts.
+ *
+ * Writers are serialized by a private monitor; the {@code createOrGet*}
+ * methods are atomic, so threads creating the same name get the same instance.
+ * Names already present are found through concurrent maps without locking.
+ * <p>
+ * Readers never take a lock that writers wait for. After every change the writer
+ * publishes an immutable state, holding the number of municipalities and mountain huts
+ * and the altitude ranges, through a volatile field; the store only appends rows
+ * and it can be read up to those numbers while it grows.
+ * <ul>
+ * <li>municipalities, mountain huts and altitude ranges are read from the last published state;
+ * <li>statistics and cube slices are read from immutable counters computed for a published
+ *     state: when they are older than the last state, a reader copies them and adds the
+ *     municipalities and mountain huts appended meanwhile, then publishes the copy for the
+ *     other readers. Only after the altitude ranges change all the huts are added again;
+ * <li>the range, top-k and name queries refresh their indexes with the huts already
+ *     appended, under the locks of the indexes, which writers never take.
+ * </ul>
+ *
+ */
+public class ConcurrentRegion extends Region {
+
+	private Object writeLock;
+	private Map<String, Municipality> municipalityIndex;
+	private Map<String, MountainHut> hutIndex;
+
+	// Municipalities of the region in order of creation, appended by the writers
+	private Municipality[] municipalities;
+	private int municipalityCount;
+
+	private volatile State state;
+	private AtomicReference<Statistics> statistics;
+
+	/**
+	 * Create a concurrent region with the given name.
+	 *
+	 * @param name: the name of the region
+	 */
+	public ConcurrentRegion(String name) {
+		super(name);
+		this.writeLock = new Object();
+		this.municipalityIndex = new ConcurrentHashMap<>();
+		this.hutIndex = new ConcurrentHashMap<>();
+		this.municipalities = new Municipality[64];
+		this.municipalityCount = 0;
+		publish();
+		this.statistics = new AtomicReference<>(new Statistics(this.state, new RegionStatistics(super.store(), this.state.ranges),
+				new HutCube(super.store(), this.state.ranges)));
+	}
+
+	/**
+	 * Factory method that creates a new concurrent region by loading its data from a file.
+	 * The file format is the same accepted by {@link Region#fromFile(String, String)}.
+	 *
+	 * @param name: the name of the region
+	 * @param file: the path of the file
+	 * @return the region, or {@code null} in case of errors while reading the file
+	 */
+	public static ConcurrentRegion fromFile(String name, String file) {
+		return fromFile(name, file, null);
+	}
+
+	/**
+	 * Factory method that creates a new concurrent region by loading its data from a file,
+	 * notifying the given listener as {@link Region#fromFile(String, String, LoadListener)} does.
+	 *
+	 * @param name: the name of the region
+	 * @param file: the path of the file
+	 * @param listener: the listener of the load
+	 * @return the region, or {@code null} in case of errors while reading the file
+	 */
+	public static ConcurrentRegion fromFile(String name, String file, LoadListener listener) {
+
+		ConcurrentRegion newRegion = new ConcurrentRegion(name);
+
+		return newRegion.loadFile(file, listener) ? newRegion : null;
+	}
+
+	@Override
+	public void setAltitudeRanges(String... ranges) {
+		synchronized(this.writeLock) {
+			super.setAltitudeRanges(ranges);
+			publish();
+		}
+	}
+
+	@Override
+	public String getAltitudeRange(Integer altitude) {
+
+		AltitudeRangeIndex ranges = this.state.ranges;
+		int range = ranges.rangeOf(altitude);
+
+		return range == AltitudeRangeIndex.NO_RANGE ? NO_RANGE : ranges.label(range);
+	}
+
+	@Override
+	public Municipality createOrGetMunicipality(String name, String province, Integer altitude) {
+
+		Municipality retValue = this.municipalityIndex.get(name);
+
+		if(retValue == null) {
+			synchronized(this.writeLock) {
+				// Another thread may have created it while waiting for the lock
+				retValue = this.municipalityIndex.get(name);
+				if(retValue == null) {
+					retValue = super.createOrGetMunicipality(name, province, altitude);
+					this.municipalityIndex.put(name, retValue);
+					if(this.municipalityCount == this.municipalities.length)
+						this.municipalities = Arrays.copyOf(this.municipalities, 2 * this.municipalityCount);
+					this.municipalities[this.municipalityCount++] = retValue;
+					publish();
+				}
+			}
+		}
+
+		return retValue;
+	}
+
+	@Override
+	public MountainHut createOrGetMountainHut(String name, Integer altitude, String category, Integer bedsNumber, Municipality municipality) {
+
+		MountainHut retValue = this.hutIndex.get(name);
+
+		if(retValue == null) {
+			synchronized(this.writeLock) {
+				retValue = this.hutIndex.get(name);
+				if(retValue == null) {
+					retValue = super.createOrGetMountainHut(name, altitude, category, bedsNumber, municipality);
+					this.hutIndex.put(name, retValue);
+					publish();
+				}
+			}
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Return the municipalities available when the last change was completed.
+	 * The collection is immutable and it is not affected by later changes.
+	 *
+	 * @return a collection of municipalities
+	 */
+	@Override
+	public Collection<Municipality> getMunicipalities() {
+		State state = this.state;
+		return Collections.unmodifiableList(Arrays.asList(state.municipalities).subList(0, state.municipalityCount));
+	}
+
+	/**
+	 * Return the mountain huts available when the last change was completed.
+	 * The collection is immutable and it is not affected by later changes.
+	 *
+	 * @return a collection of mountain huts
+	 */
+	@Override
+	public Collection<MountainHut> getMountainHuts() {
+		return Collections.unmodifiableList(super.store().huts().subList(0, this.state.hutCount));
+	}
+
+	/**
+	 * Read the lines appended to the source file.
+	 * Concurrent reloads are serialized, while each new line is added atomically.
+	 */
+	@Override
+	public synchronized int reload() throws IOException {
+		return super.reload();
+	}
+
+	/**
+	 * Save the region as it was when the last change was completed,
+	 * while other threads keep changing it.
+	 */
+	@Override
+	public void saveSnapshot(String file) throws IOException {
+		State state = this.state;
+		RegionSnapshot.save(getName(), state.ranges, super.store(), state.hutCount, file);
+	}
+
+	@Override
+	long version() {
+		return this.state.version;
+	}
+
+	@Override
+	public Map<String, Long> countMunicipalitiesPerProvince() {
+		return statistics().statistics.municipalitiesPerProvince();
+	}
+
+	@Override
+	public Map<String, Map<String, Long>> countMountainHutsPerMunicipalityPerProvince() {
+		return statistics().statistics.mountainHutsPerMunicipalityPerProvince();
+	}
+
+	@Override
+	public Map<String, Long> countMountainHutsPerAltitudeRange() {
+		return statistics().statistics.mountainHutsPerAltitudeRange();
+	}
+
+	@Override
+	public Map<String, Integer> totalBedsNumberPerProvince() {
+		return statistics().statistics.bedsPerProvince();
+	}
+
+	@Override
+	public Map<String, Optional<Integer>> maximumBedsNumberPerAltitudeRange() {
+		return statistics().statistics.maximumBedsPerAltitudeRange();
+	}
+
+	@Override
+	public Map<Long, List<String>> municipalityNamesPerCountOfMountainHuts() {
+		return statistics().statistics.municipalityNamesPerCountOfMountainHuts();
+	}
+
+	@Override
+	public Map<String, Long> aggregate(HutQuery query) {
+		State state = this.state;
+		return query.execute(super.store(), state.ranges, state.hutCount);
+	}
+
+	@Override
+	public long countMountainHuts(String province, String category, String altitudeRange) {
+		return statistics().cube.count(province, category, altitudeRange);
+	}
+
+	@Override
+	public long totalBedsNumber(String province, String category, String altitudeRange) {
+		return statistics().cube.totalBeds(province, category, altitudeRange);
+	}
+
+	@Override
+	public Optional<Integer> maximumBedsNumber(String province, String category, String altitudeRange) {
+		return statistics().cube.maxBeds(province, category, altitudeRange);
+	}
+
+	/**
+	 * Publish the current state of the region, called by the writers after every change
+	 */
+	private void publish() {
+		this.state = new State(super.version(), super.altitudeRanges(), super.store().size(), this.municipalities, this.municipalityCount);
+	}
+
+	/**
+	 * Return the statistics of the last published state, or of a later one,
+	 * bringing the last computed statistics up to date if needed
+	 */
+	private Statistics statistics() {
+
+		State state = this.state;
+		Statistics current = this.statistics.get();
+
+		if(current.state.version >= state.version)
+			return current;
+
+		Statistics next = current.update(state, super.store());
+
+		// Another reader may have published more recent statistics meanwhile
+		return this.statistics.accumulateAndGet(next, (a, b) -> a.state.version >= b.state.version ? a : b);
+	}
+
+	/**
+	 * Immutable state of the region published by a writer
+	 */
+	private static class State {
+
+		final long version;
+		final AltitudeRangeIndex ranges;
+		final int hutCount;
+		// Only the first municipalities of the array belong to the state, the others may be added later
+		final Municipality[] municipalities;
+		final int municipalityCount;
+
+		State(long version, AltitudeRangeIndex ranges, int hutCount, Municipality[] municipalities, int municipalityCount) {
+			this.version = version;
+			this.ranges = ranges;
+			this.hutCount = hutCount;
+			this.municipalities = municipalities;
+			this.municipalityCount = municipalityCount;
+		}
+	}
+
+	/**
+	 * Statistics and cube of a published state, never changed once built
+	 */
+	private static class Statistics {
+
+		final State state;
+		final RegionStatistics statistics;
+		final HutCube cube;
+
+		Statistics(State state, RegionStatistics statistics, HutCube cube) {
+			this.state = state;
+			this.statistics = statistics;
+			this.cube = cube;
+		}
+
+		/**
+		 * Statistics of a later state: the municipalities and mountain huts appended
+		 * since this state are added to a copy, or all of them if the ranges changed
+		 */
+		Statistics update(State target, HutStore store) {
+
+			boolean sameRanges = this.state.ranges == target.ranges;
+			RegionStatistics statistics = sameRanges ? this.statistics.copy() : new RegionStatistics(store, target.ranges);
+			HutCube cube = sameRanges ? this.cube.copy() : new HutCube(store, target.ranges);
+
+			for(int i = sameRanges ? this.state.municipalityCount : 0; i < target.municipalityCount; i++)
+				statistics.addMunicipality(target.municipalities[i].index());
+			for(int row = sameRanges ? this.state.hutCount : 0; row < target.hutCount; row++) {
+				statistics.addMountainHut(row);
+				cube.addMountainHut(row);
+			}
+
+			return new Statistics(target, statistics, cube);
+		}
+	}
+
+}
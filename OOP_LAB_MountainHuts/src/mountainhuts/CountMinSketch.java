@@ -0,0 +1,76 @@
+package mountainhuts;
+
+/**
+ * Count-min sketch estimating how many times each value has been added.
+ *
+ * It uses {@value #DEPTH} rows of 2^{@value #WIDTH_BITS} counters (5 MiB in total).
+ * Estimates never underestimate; with N values added, an estimate exceeds the
+ * true count by more than e / 2^{@value #WIDTH_BITS} * N (about 1e-5 * N) with
+ * probability at most e^-{@value #DEPTH} (less than 1%).
+ * Counters are updated conservatively, which further reduces the overestimation.
+ *
+ */
+class CountMinSketch {
+
+	final static int DEPTH = 5;
+	final static int WIDTH_BITS = 18;
+
+	private final static int WIDTH = 1 << WIDTH_BITS;
+
+	private int[][] counters;
+
+	/*
+	 * Constructor of the CountMinSketch class
+	 */
+	CountMinSketch() {
+		this.counters = new int[DEPTH][WIDTH];
+	}
+
+	/**
+	 * Account for an occurrence of a value.
+	 *
+	 * @param value: the value
+	 * @return the estimated number of occurrences of the value, including this one
+	 */
+	long add(String value) {
+
+		long hash = Hashing.hash(value);
+		int estimate = estimate(hash);
+
+		// Conservative update: only the counters equal to the minimum are incremented
+		for(int d = 0; d < DEPTH; d++) {
+			int column = column(hash, d);
+			if(this.counters[d][column] == estimate)
+				this.counters[d][column]++;
+		}
+
+		return estimate + 1L;
+	}
+
+	/**
+	 * Estimated number of occurrences of a value
+	 */
+	long estimate(String value) {
+		return estimate(Hashing.hash(value));
+	}
+
+	private int estimate(long hash) {
+
+		int retValue = Integer.MAX_VALUE;
+
+		for(int d = 0; d < DEPTH; d++)
+			retValue = Math.min(retValue, this.counters[d][column(hash, d)]);
+
+		return retValue;
+	}
+
+	/**
+	 * Column of a value in a row, from two independent halves of the hash
+	 */
+	private static int column(long hash, int row) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		return (h1 + row * h2) & (WIDTH - 1);
+	}
+
+}
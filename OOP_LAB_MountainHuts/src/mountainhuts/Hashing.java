@@ -0,0 +1,34 @@
+package mountainhuts;
+
+/**
+ * 64-bit hashing of strings for the probabilistic sketches.
+ *
+ * {@link String#hashCode()} only has 32 bits and poor dispersion in its
+ * low bits, which would bias the sketches: the characters are hashed with
+ * FNV-1a and the result is scrambled with the finalizer of MurmurHash3.
+ *
+ */
+final class Hashing {
+
+	private Hashing() {
+	}
+
+	static long hash(String value) {
+
+		long h = 0xcbf29ce484222325L;
+
+		for(int i = 0; i < value.length(); i++) {
+			h ^= value.charAt(i);
+			h *= 0x100000001b3L;
+		}
+
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+
+		return h;
+	}
+
+}
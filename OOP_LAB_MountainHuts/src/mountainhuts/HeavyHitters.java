@@ -0,0 +1,102 @@
+package mountainhuts;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Bounded set of the values with the highest estimated number of occurrences,
+ * fed with the estimates of a {@link CountMinSketch} while the values are added.
+ *
+ * At most a fixed number of values is tracked: a new value replaces the tracked
+ * value with the lowest estimate only when its own estimate is higher.
+ * Once the capacity is reached the lowest tracked estimate never decreases, and
+ * every estimate is not lower than the exact number of occurrences, therefore every
+ * value occurring more times than the lowest tracked estimate is tracked.
+ * No such guarantee holds for the estimates: collisions in the sketch may raise the
+ * estimate of a value after its last occurrence, above the lowest tracked estimate,
+ * and a value that is not offered again is not tracked whatever its estimate.
+ * The lowest estimate is found through a heap whose entries become stale when the
+ * estimate of their value grows; stale entries are discarded when they reach the top.
+ *
+ */
+class HeavyHitters {
+
+	private int capacity;
+	// Estimate of each tracked value when it was last offered
+	private Map<String, Long> tracked;
+	private PriorityQueue<Map.Entry<String, Long>> heap;
+
+	/*
+	 * Constructor of the HeavyHitters class
+	 *
+	 * @param capacity: the maximum number of values tracked
+	 */
+	HeavyHitters(int capacity) {
+		this.capacity = capacity;
+		this.tracked = new HashMap<>();
+		this.heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+	}
+
+	/**
+	 * Account for the current estimate of a value that has just been added.
+	 *
+	 * @param value: the value
+	 * @param estimate: the estimated number of occurrences of the value, including this one
+	 */
+	void offer(String value, long estimate) {
+
+		Long current = this.tracked.get(value);
+
+		if(current != null) {
+			if(estimate > current)
+				track(value, estimate);
+			return;
+		}
+
+		if(this.tracked.size() < this.capacity) {
+			track(value, estimate);
+			return;
+		}
+
+		Map.Entry<String, Long> lowest = lowest();
+		if(estimate > lowest.getValue()) {
+			this.heap.poll();
+			this.tracked.remove(lowest.getKey());
+			track(value, estimate);
+		}
+	}
+
+	/**
+	 * Values currently tracked
+	 */
+	Set<String> values() {
+		return this.tracked.keySet();
+	}
+
+	private void track(String value, long estimate) {
+
+		this.tracked.put(value, estimate);
+		this.heap.add(new AbstractMap.SimpleImmutableEntry<>(value, estimate));
+
+		// Too many stale entries: the heap is rebuilt from the tracked values
+		if(this.heap.size() > 4 * this.capacity) {
+			this.heap.clear();
+			this.tracked.forEach((v, e) -> this.heap.add(new AbstractMap.SimpleImmutableEntry<>(v, e)));
+		}
+	}
+
+	/**
+	 * The tracked value with the lowest estimate, discarding the stale entries on top of the heap
+	 */
+	private Map.Entry<String, Long> lowest() {
+
+		while(!this.heap.peek().getValue().equals(this.tracked.get(this.heap.peek().getKey())))
+			this.heap.poll();
+
+		return this.heap.peek();
+	}
+
+}
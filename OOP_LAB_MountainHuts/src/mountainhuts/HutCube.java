@@ -0,0 +1,211 @@
+package mountainhuts;
+
+import java.util.Optional;
+
+/**
+ * Pre-aggregated cube of the mountain huts of a {@link HutStore}
+ * over three dimensions: province, category and altitude range.
+ *
+ * Every cell holds the number of huts, the total and the maximum number of beds.
+ * Along each dimension slot 0 stands for all the values (the dimension is rolled up),
+ * the other slots are the province and category codes shifted by one and the
+ * altitude range slots, the last one being the default range.
+ * Each hut updates the 8 cells combining its values with the rolled-up slots,
+ * so that any slice is answered by reading a single cell.
+ * When new provinces or categories exceed the capacity of the cube, it is
+ * rebuilt with twice the capacity from the mountain huts already added.
+ *
+ */
+class HutCube {
+
+	private final static int ALL = 0;
+
+	private HutStore store;
+	private AltitudeRangeIndex ranges;
+	// Number of rows of the store added to the cube
+	private int rows;
+
+	// Number of slots along each dimension
+	private int provinceSlots;
+	private int categorySlots;
+	private int rangeSlots;
+
+	// Cells in row-major order: province, category, range
+	private long[] counts;
+	private long[] beds;
+	private int[] maxBeds;
+
+	/*
+	 * Constructor of the HutCube class
+	 *
+	 * @param store: the store containing the data of the region
+	 * @param ranges: the altitude ranges used as dimension
+	 */
+	HutCube(HutStore store, AltitudeRangeIndex ranges) {
+		this.store = store;
+		this.ranges = ranges;
+		this.rows = 0;
+		this.provinceSlots = 8;
+		this.categorySlots = 8;
+		rebuild();
+	}
+
+	/*
+	 * Copy of the cells of another cube
+	 */
+	private HutCube(HutCube other) {
+		this.store = other.store;
+		this.ranges = other.ranges;
+		this.rows = other.rows;
+		this.provinceSlots = other.provinceSlots;
+		this.categorySlots = other.categorySlots;
+		this.rangeSlots = other.rangeSlots;
+		this.counts = other.counts.clone();
+		this.beds = other.beds.clone();
+		this.maxBeds = other.maxBeds.clone();
+	}
+
+	/**
+	 * Return an independent cube with the same cells, which can be
+	 * updated with more mountain huts without changing this one.
+	 *
+	 * @return the copy of the cube
+	 */
+	HutCube copy() {
+		return new HutCube(this);
+	}
+
+	/**
+	 * Change the altitude ranges used as dimension, recomputing all the cells.
+	 *
+	 * @param ranges: the new altitude ranges
+	 */
+	void setRanges(AltitudeRangeIndex ranges) {
+		this.ranges = ranges;
+		rebuild();
+	}
+
+	/**
+	 * Account for a mountain hut of the region.
+	 * The mountain huts must be added in order of row.
+	 *
+	 * @param row: the row of the mountain hut in the store
+	 */
+	void addMountainHut(int row) {
+
+		int province = this.store.province(row) + 1;
+		int category = this.store.category(row) + 1;
+
+		this.rows = row + 1;
+
+		if(province >= this.provinceSlots || category >= this.categorySlots) {
+			this.provinceSlots = Math.max(this.provinceSlots, 2 * province);
+			this.categorySlots = Math.max(this.categorySlots, 2 * category);
+			// The new hut is included as well, since it is already counted in the rows
+			rebuild();
+			return;
+		}
+
+		add(row, province, category);
+	}
+
+	/**
+	 * Number of mountain huts in a slice of the cube.
+	 * A {@code null} value rolls up the corresponding dimension.
+	 *
+	 * @param province: the province
+	 * @param category: the category
+	 * @param range: the textual representation of the altitude range
+	 * @return the number of mountain huts
+	 */
+	long count(String province, String category, String range) {
+		int cell = cell(province, category, range);
+		return cell < 0 ? 0 : this.counts[cell];
+	}
+
+	/**
+	 * Total number of beds in a slice of the cube.
+	 */
+	long totalBeds(String province, String category, String range) {
+		int cell = cell(province, category, range);
+		return cell < 0 ? 0 : this.beds[cell];
+	}
+
+	/**
+	 * Maximum number of beds of a single mountain hut in a slice of the cube,
+	 * empty if the slice contains no mountain huts.
+	 */
+	Optional<Integer> maxBeds(String province, String category, String range) {
+		int cell = cell(province, category, range);
+		return cell < 0 || this.counts[cell] == 0 ? Optional.empty() : Optional.of(this.maxBeds[cell]);
+	}
+
+	/**
+	 * Index of the cell of a slice, or -1 if a value is unknown
+	 */
+	private int cell(String province, String category, String range) {
+
+		int p = ALL;
+		int c = ALL;
+		int r = ALL;
+
+		// Values added to the store after the last hut of the cube are unknown as well
+		if(province != null && ((p = this.store.provinces().codeOf(province) + 1) == 0 || p >= this.provinceSlots))
+			return -1;
+		if(category != null && ((c = this.store.categories().codeOf(category) + 1) == 0 || c >= this.categorySlots))
+			return -1;
+		if(range != null) {
+			if(range.equals(Region.NO_RANGE))
+				r = this.rangeSlots - 1;
+			else if((r = this.ranges.indexOf(range) + 1) == 0)
+				return -1;
+		}
+
+		return index(p, c, r);
+	}
+
+	/**
+	 * Update the cells including a mountain hut
+	 */
+	private void add(int row, int province, int category) {
+
+		int range = this.ranges.rangeOf(this.store.effectiveAltitude(row));
+		int rangeSlot = range == AltitudeRangeIndex.NO_RANGE ? this.rangeSlots - 1 : range + 1;
+		int bedsNumber = this.store.beds(row);
+
+		// Every combination of the actual values and the rolled-up slots
+		for(int mask = 0; mask < 8; mask++) {
+			int cell = index((mask & 1) == 0 ? province : ALL, (mask & 2) == 0 ? category : ALL, (mask & 4) == 0 ? rangeSlot : ALL);
+
+			if(this.counts[cell] == 0 || bedsNumber > this.maxBeds[cell])
+				this.maxBeds[cell] = bedsNumber;
+			this.counts[cell]++;
+			this.beds[cell] += bedsNumber;
+		}
+	}
+
+	/**
+	 * Allocate the cells with the current capacity and add all the huts of the cube again
+	 */
+	private void rebuild() {
+
+		this.rangeSlots = this.ranges.size() + 2;
+
+		int cells = this.provinceSlots * this.categorySlots * this.rangeSlots;
+		this.counts = new long[cells];
+		this.beds = new long[cells];
+		this.maxBeds = new int[cells];
+
+		for(int row = 0; row < this.rows; row++) {
+			int province = this.store.province(row) + 1;
+			int category = this.store.category(row) + 1;
+
+			add(row, province, category);
+		}
+	}
+
+	private int index(int province, int category, int range) {
+		return (province * this.categorySlots + category) * this.rangeSlots + range;
+	}
+
+}
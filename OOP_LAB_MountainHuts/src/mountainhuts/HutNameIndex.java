@@ -0,0 +1,262 @@
+package mountainhuts;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Trigram index over the names of the mountain huts of a {@link HutStore},
+ * used for searches by partial or misspelled names.
+ *
+ * Names are normalized (upper case, without accents, punctuation and repeated
+ * spaces) and split into the trigrams of the name padded with spaces.
+ * Each trigram is encoded as a small integer over the alphabet of letters, digits
+ * and space, so the posting lists are stored in a plain array indexed by trigram.
+ * The similarity between a query and a name is the Dice coefficient of
+ * their trigram sets, computed only for the names sharing at least one trigram.
+ * <p>
+ * Huts added to the store after the last search are indexed when the next
+ * search is performed.
+ *
+ */
+class HutNameIndex {
+
+	// Letters, digits and space
+	private final static int ALPHABET = 37;
+	private final static int SPACE = 36;
+
+	private HutStore store;
+	private int indexedRows;
+
+	// Posting lists: rows containing each trigram, in increasing order
+	private int[][] postings;
+	private int[] postingSizes;
+	// Number of distinct trigrams of each row
+	private int[] trigramCounts;
+
+	// Scratch space of the searches
+	private int[] scores;
+
+	/*
+	 * Constructor of the HutNameIndex class
+	 */
+	HutNameIndex(HutStore store) {
+		this.store = store;
+		this.indexedRows = 0;
+		this.postings = new int[ALPHABET * ALPHABET * ALPHABET][];
+		this.postingSizes = new int[this.postings.length];
+		this.trigramCounts = new int[64];
+		this.scores = new int[0];
+	}
+
+	/**
+	 * The mountain huts whose names are the most similar to the query,
+	 * sorted by decreasing similarity.
+	 *
+	 * @param query: the name, or part of it, to be searched
+	 * @param k: the maximum number of huts returned
+	 * @return the list of mountain huts
+	 */
+	synchronized List<MountainHut> search(String query, int k) {
+
+		refresh();
+
+		int[] queryTrigrams = trigrams(query);
+		List<MountainHut> retValue = new ArrayList<>();
+
+		if(queryTrigrams.length == 0 || k <= 0)
+			return retValue;
+
+		if(this.scores.length < this.indexedRows)
+			this.scores = new int[this.trigramCounts.length];
+
+		// The rarest trigrams first: they produce the fewest candidates
+		int t = queryTrigrams.length;
+		Integer[] order = new Integer[t];
+		for(int i = 0; i < t; i++)
+			order[i] = queryTrigrams[i];
+		Arrays.sort(order, Comparator.comparingInt(trigram -> this.postingSizes[trigram]));
+
+		// Count the shared trigrams of every candidate, remembering the candidates touched
+		int[] touched = new int[16];
+		int touchedCount = 0;
+		int j = 0;
+		for(; j < t; j++) {
+			// A name first found in the j-th list shares at most t-j trigrams with the query:
+			// once it cannot beat the k-th best candidate, only the known candidates are counted.
+			// That is possible only past half of the lists, and convenient only if the candidates are
+			// much fewer than the remaining postings, since each one is then searched in every list
+			if(2 * j > t && touchedCount >= k && 32L * touchedCount < remaining(order, j)
+					&& dice(t - j, t, t - j) < kthLowerBound(touched, touchedCount, t, k))
+				break;
+
+			int trigram = order[j];
+			int[] rows = this.postings[trigram];
+			for(int i = 0; i < this.postingSizes[trigram]; i++) {
+				int row = rows[i];
+				if(this.scores[row]++ == 0) {
+					if(touchedCount == touched.length)
+						touched = Arrays.copyOf(touched, 2 * touched.length);
+					touched[touchedCount++] = row;
+				}
+			}
+		}
+		for(; j < t; j++) {
+			int trigram = order[j];
+			for(int i = 0; i < touchedCount; i++) {
+				if(Arrays.binarySearch(this.postings[trigram], 0, this.postingSizes[trigram], touched[i]) >= 0)
+					this.scores[touched[i]]++;
+			}
+		}
+
+		// Keep the best k candidates, the worst one on top of the heap.
+		// Ties are broken in favor of the huts added first
+		Comparator<long[]> worse = (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(b[1], a[1]);
+		PriorityQueue<long[]> best = new PriorityQueue<>(k + 1, worse);
+		for(int i = 0; i < touchedCount; i++) {
+			int row = touched[i];
+			long[] candidate = {dice(this.scores[row], t, this.trigramCounts[row]), row};
+			this.scores[row] = 0;
+
+			if(best.size() < k)
+				best.add(candidate);
+			else if(worse.compare(candidate, best.peek()) > 0) {
+				best.poll();
+				best.add(candidate);
+			}
+		}
+
+		while(!best.isEmpty())
+			retValue.add(this.store.hut((int) best.poll()[1]));
+		Collections.reverse(retValue);
+
+		return retValue;
+	}
+
+	/**
+	 * Total size of the posting lists from the given one on
+	 */
+	private long remaining(Integer[] order, int from) {
+
+		long retValue = 0;
+
+		for(int j = from; j < order.length; j++)
+			retValue += this.postingSizes[order[j]];
+
+		return retValue;
+	}
+
+	/**
+	 * The k-th highest similarity of the candidates, computed with the trigrams counted so far
+	 */
+	private long kthLowerBound(int[] touched, int touchedCount, int queryTrigrams, int k) {
+
+		PriorityQueue<Long> best = new PriorityQueue<>(k + 1);
+
+		for(int i = 0; i < touchedCount; i++) {
+			best.add(dice(this.scores[touched[i]], queryTrigrams, this.trigramCounts[touched[i]]));
+			if(best.size() > k)
+				best.poll();
+		}
+
+		return best.peek();
+	}
+
+	/**
+	 * Dice coefficient of two sets of trigrams, scaled to an integer to be compared exactly
+	 */
+	private static long dice(int shared, int queryTrigrams, int nameTrigrams) {
+		return (2L << 20) * shared / (queryTrigrams + nameTrigrams);
+	}
+
+	/**
+	 * Index the huts added to the store since the last refresh
+	 */
+	private void refresh() {
+
+		int size = this.store.size();
+
+		if(this.trigramCounts.length < size)
+			this.trigramCounts = Arrays.copyOf(this.trigramCounts, Math.max(2 * this.trigramCounts.length, size));
+
+		for(int row = this.indexedRows; row < size; row++) {
+			int[] trigrams = trigrams(this.store.name(row));
+
+			this.trigramCounts[row] = trigrams.length;
+			for(int trigram : trigrams) {
+				if(this.postings[trigram] == null)
+					this.postings[trigram] = new int[4];
+				else if(this.postingSizes[trigram] == this.postings[trigram].length)
+					this.postings[trigram] = Arrays.copyOf(this.postings[trigram], 2 * this.postings[trigram].length);
+				this.postings[trigram][this.postingSizes[trigram]++] = row;
+			}
+		}
+
+		this.indexedRows = size;
+	}
+
+	/**
+	 * Distinct trigrams of a name. The name is normalized first: upper case letters
+	 * and digits without accents, any other sequence of characters becomes a single space.
+	 * Then it is padded with two spaces at the beginning and one at the end.
+	 */
+	static int[] trigrams(String name) {
+
+		// Accents are removed by decomposing the characters, only needed when not ASCII
+		String decomposed = name;
+		for(int i = 0; i < name.length(); i++) {
+			if(name.charAt(i) >= 0x80) {
+				decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+				break;
+			}
+		}
+
+		int[] codes = new int[decomposed.length() + 3];
+		int length = 2;
+
+		codes[0] = SPACE;
+		codes[1] = SPACE;
+		for(int i = 0; i < decomposed.length(); i++) {
+			char c = Character.toUpperCase(decomposed.charAt(i));
+
+			if(Character.getType(c) == Character.NON_SPACING_MARK)
+				continue;
+			if((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))
+				codes[length++] = code(c);
+			else if(codes[length - 1] != SPACE)
+				codes[length++] = SPACE;
+		}
+
+		if(length == 2)
+			return new int[0];
+		if(codes[length - 1] != SPACE)
+			codes[length++] = SPACE;
+
+		int[] retValue = new int[length - 2];
+		for(int i = 0; i < retValue.length; i++)
+			retValue[i] = (codes[i] * ALPHABET + codes[i + 1]) * ALPHABET + codes[i + 2];
+
+		// Remove the duplicates
+		Arrays.sort(retValue);
+		int distinct = 0;
+		for(int i = 0; i < retValue.length; i++) {
+			if(i == 0 || retValue[i] != retValue[i - 1])
+				retValue[distinct++] = retValue[i];
+		}
+
+		return Arrays.copyOf(retValue, distinct);
+	}
+
+	private static int code(char c) {
+		if(c >= 'A' && c <= 'Z')
+			return c - 'A';
+		if(c >= '0' && c <= '9')
+			return 26 + c - '0';
+		return SPACE;
+	}
+
+}
@@ -0,0 +1,332 @@
+package mountainhuts;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Group-by query over the mountain huts of a {@link Region}, e.g.
+ * <pre>
+ * HutQuery query = HutQuery.groupBy(HutQuery.Dimension.CATEGORY).max(HutQuery.Measure.BEDS);
+ * Map&lt;String, Long&gt; result = region.aggregate(query);
+ * </pre>
+ * Queries are immutable and they can be executed any number of times,
+ * on any region. The dimension, the aggregate and the measure are fixed when the
+ * query is built, and so is the loop of the aggregate: each execution extracts the
+ * group and the measure of the mountain huts into primitive columns, then that loop
+ * accumulates them into a primitive array indexed by group, without boxing.
+ * When the altitude of a mountain hut is not available, the altitude of its
+ * municipality is used, both as measure and to find its altitude range; huts
+ * without either altitude are left out of the aggregates of the altitude.
+ *
+ */
+public class HutQuery {
+
+	/**
+	 * Attribute used to group the mountain huts
+	 */
+	public enum Dimension {
+		PROVINCE {
+			int groups(HutStore store, AltitudeRangeIndex ranges) {
+				return store.provinces().size();
+			}
+			int[] column(HutStore store, AltitudeRangeIndex ranges, int size) {
+				int[] retValue = new int[size];
+				for(int row = 0; row < size; row++)
+					retValue[row] = store.province(row);
+				return retValue;
+			}
+			String label(HutStore store, AltitudeRangeIndex ranges, int group) {
+				return store.provinces().decode(group);
+			}
+		},
+		MUNICIPALITY {
+			int groups(HutStore store, AltitudeRangeIndex ranges) {
+				return store.municipalityCount();
+			}
+			int[] column(HutStore store, AltitudeRangeIndex ranges, int size) {
+				int[] retValue = new int[size];
+				for(int row = 0; row < size; row++)
+					retValue[row] = store.municipality(row);
+				return retValue;
+			}
+			String label(HutStore store, AltitudeRangeIndex ranges, int group) {
+				return store.municipalityAt(group).getName();
+			}
+		},
+		CATEGORY {
+			int groups(HutStore store, AltitudeRangeIndex ranges) {
+				return store.categories().size();
+			}
+			int[] column(HutStore store, AltitudeRangeIndex ranges, int size) {
+				int[] retValue = new int[size];
+				for(int row = 0; row < size; row++)
+					retValue[row] = store.category(row);
+				return retValue;
+			}
+			String label(HutStore store, AltitudeRangeIndex ranges, int group) {
+				return store.categories().decode(group);
+			}
+		},
+		ALTITUDE_RANGE {
+			// The last group is the default range
+			int groups(HutStore store, AltitudeRangeIndex ranges) {
+				return ranges.size() + 1;
+			}
+			int[] column(HutStore store, AltitudeRangeIndex ranges, int size) {
+				int[] retValue = new int[size];
+				for(int row = 0; row < size; row++) {
+					int range = ranges.rangeOf(store.effectiveAltitude(row));
+					retValue[row] = range == AltitudeRangeIndex.NO_RANGE ? ranges.size() : range;
+				}
+				return retValue;
+			}
+			String label(HutStore store, AltitudeRangeIndex ranges, int group) {
+				return group == ranges.size() ? Region.NO_RANGE : ranges.label(group);
+			}
+		};
+
+		abstract int groups(HutStore store, AltitudeRangeIndex ranges);
+		// Group of each of the first rows of the store
+		abstract int[] column(HutStore store, AltitudeRangeIndex ranges, int size);
+		abstract String label(HutStore store, AltitudeRangeIndex ranges, int group);
+	}
+
+	/**
+	 * Attribute of the mountain huts to be aggregated
+	 */
+	public enum Measure {
+		BEDS {
+			int[] column(HutStore store, int size) {
+				int[] retValue = new int[size];
+				for(int row = 0; row < size; row++)
+					retValue[row] = store.beds(row);
+				return retValue;
+			}
+		},
+		// HutStore.MISSING when neither the hut nor its municipality have an altitude
+		ALTITUDE {
+			int[] column(HutStore store, int size) {
+				int[] retValue = new int[size];
+				for(int row = 0; row < size; row++)
+					retValue[row] = store.effectiveAltitude(row);
+				return retValue;
+			}
+		};
+
+		// Value of each of the first rows of the store
+		abstract int[] column(HutStore store, int size);
+	}
+
+	/**
+	 * Aggregate function
+	 */
+	public enum Aggregate {
+		COUNT {
+			Loop loop(Dimension dimension, Measure measure) {
+				return new CountLoop(dimension);
+			}
+		},
+		SUM {
+			Loop loop(Dimension dimension, Measure measure) {
+				return new SumLoop(dimension, measure);
+			}
+		},
+		MIN {
+			Loop loop(Dimension dimension, Measure measure) {
+				return new MinLoop(dimension, measure);
+			}
+		},
+		MAX {
+			Loop loop(Dimension dimension, Measure measure) {
+				return new MaxLoop(dimension, measure);
+			}
+		};
+
+		abstract Loop loop(Dimension dimension, Measure measure);
+	}
+
+	/**
+	 * Query under construction, with the dimension already chosen
+	 */
+	public static class Builder {
+
+		private Dimension dimension;
+
+		private Builder(Dimension dimension) {
+			this.dimension = dimension;
+		}
+
+		public HutQuery count() {
+			return new HutQuery(this.dimension, Aggregate.COUNT, Measure.BEDS);
+		}
+
+		public HutQuery sum(Measure measure) {
+			return new HutQuery(this.dimension, Aggregate.SUM, measure);
+		}
+
+		public HutQuery min(Measure measure) {
+			return new HutQuery(this.dimension, Aggregate.MIN, measure);
+		}
+
+		public HutQuery max(Measure measure) {
+			return new HutQuery(this.dimension, Aggregate.MAX, measure);
+		}
+	}
+
+	private Dimension dimension;
+	private Aggregate aggregate;
+	private Measure measure;
+	private Loop loop;
+
+	private HutQuery(Dimension dimension, Aggregate aggregate, Measure measure) {
+		this.dimension = dimension;
+		this.aggregate = aggregate;
+		this.measure = measure;
+		this.loop = aggregate.loop(dimension, measure);
+	}
+
+	/**
+	 * Start building a query grouping the mountain huts by the given dimension.
+	 *
+	 * @param dimension: the dimension
+	 * @return the builder of the query
+	 */
+	public static Builder groupBy(Dimension dimension) {
+		return new Builder(dimension);
+	}
+
+	public Dimension getDimension() {
+		return this.dimension;
+	}
+
+	public Aggregate getAggregate() {
+		return this.aggregate;
+	}
+
+	public Measure getMeasure() {
+		return this.measure;
+	}
+
+	/**
+	 * Execute the query over the first mountain huts of a store.
+	 * Mountain huts without altitude, neither their own nor of their municipality,
+	 * are not aggregated when the measure is the altitude.
+	 *
+	 * @param store: the store containing the mountain huts
+	 * @param ranges: the altitude ranges of the region
+	 * @param size: the number of mountain huts to be aggregated
+	 * @return a map with the group as key and the aggregated value as value,
+	 *         only groups with at least one mountain hut are included
+	 */
+	Map<String, Long> execute(HutStore store, AltitudeRangeIndex ranges, int size) {
+
+		long[] values = new long[this.dimension.groups(store, ranges)];
+		long[] counts = new long[values.length];
+
+		this.loop.run(store, ranges, size, values, counts);
+
+		Map<String, Long> retValue = new HashMap<>();
+		for(int group = 0; group < values.length; group++) {
+			if(counts[group] > 0)
+				retValue.put(this.dimension.label(store, ranges, group), values[group]);
+		}
+
+		return retValue;
+	}
+
+	@Override
+	public String toString() {
+		return this.aggregate + (this.aggregate == Aggregate.COUNT ? "" : "(" + this.measure + ")") + " GROUP BY " + this.dimension;
+	}
+
+	/**
+	 * Aggregation loop of a query, chosen when the query is built: the columns of the
+	 * dimension and of the measure are extracted once per execution, then a single loop
+	 * specific to the aggregate reads them, without any call or choice per row
+	 */
+	private abstract static class Loop {
+
+		protected Dimension dimension;
+		protected Measure measure;
+
+		Loop(Dimension dimension, Measure measure) {
+			this.dimension = dimension;
+			this.measure = measure;
+		}
+
+		/**
+		 * Aggregate the first rows of the store into the values and the counts of their groups
+		 */
+		abstract void run(HutStore store, AltitudeRangeIndex ranges, int size, long[] values, long[] counts);
+	}
+
+	private static class CountLoop extends Loop {
+
+		CountLoop(Dimension dimension) {
+			super(dimension, null);
+		}
+
+		void run(HutStore store, AltitudeRangeIndex ranges, int size, long[] values, long[] counts) {
+			int[] groups = this.dimension.column(store, ranges, size);
+			for(int row = 0; row < size; row++)
+				counts[groups[row]]++;
+			System.arraycopy(counts, 0, values, 0, values.length);
+		}
+	}
+
+	private static class SumLoop extends Loop {
+
+		SumLoop(Dimension dimension, Measure measure) {
+			super(dimension, measure);
+		}
+
+		void run(HutStore store, AltitudeRangeIndex ranges, int size, long[] values, long[] counts) {
+			int[] groups = this.dimension.column(store, ranges, size);
+			int[] measures = this.measure.column(store, size);
+			for(int row = 0; row < size; row++) {
+				int value = measures[row];
+				if(value != HutStore.MISSING) {
+					counts[groups[row]]++;
+					values[groups[row]] += value;
+				}
+			}
+		}
+	}
+
+	private static class MinLoop extends Loop {
+
+		MinLoop(Dimension dimension, Measure measure) {
+			super(dimension, measure);
+		}
+
+		void run(HutStore store, AltitudeRangeIndex ranges, int size, long[] values, long[] counts) {
+			int[] groups = this.dimension.column(store, ranges, size);
+			int[] measures = this.measure.column(store, size);
+			for(int row = 0; row < size; row++) {
+				int group = groups[row];
+				int value = measures[row];
+				if(value != HutStore.MISSING && (counts[group]++ == 0 || value < values[group]))
+					values[group] = value;
+			}
+		}
+	}
+
+	private static class MaxLoop extends Loop {
+
+		MaxLoop(Dimension dimension, Measure measure) {
+			super(dimension, measure);
+		}
+
+		void run(HutStore store, AltitudeRangeIndex ranges, int size, long[] values, long[] counts) {
+			int[] groups = this.dimension.column(store, ranges, size);
+			int[] measures = this.measure.column(store, size);
+			for(int row = 0; row < size; row++) {
+				int group = groups[row];
+				int value = measures[row];
+				if(value != HutStore.MISSING && (counts[group]++ == 0 || value > values[group]))
+					values[group] = value;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,386 @@
+package mountainhuts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorted indexes over the mountain huts of a {@link HutStore}, used
+ * to answer range and top-k queries without scanning all the huts.
+ *
+ * The indexes are sorted arrays of primitive keys, each one combining the
+ * sorting value in the high 32 bits with the row of the hut in the low ones:
+ * <ul>
+ * <li>all the huts by effective altitude (the municipality altitude is used when
+ * the hut altitude is not available), together with a range maximum table
+ * over their number of beds,
+ * <li>the huts of each province by decreasing number of beds.
+ * </ul>
+ * The indexes are split into runs, each one covering a slice of the rows.
+ * Huts added to the store after the last query are sorted into a new run when
+ * the next query is performed; a run is merged with the previous one only when
+ * they have comparable sizes, so the number of runs stays logarithmic and every
+ * hut is merged a logarithmic number of times.
+ * <p>
+ * Within a run, the huts in an altitude window having enough beds are found by
+ * recursively splitting the window at its hut with the most beds, which costs
+ * a constant time per hut returned, plus the binary search of the window.
+ *
+ */
+class HutQueryIndex {
+
+	private HutStore store;
+	private int indexedRows;
+
+	// Runs from the oldest and largest to the newest
+	private List<Run> runs;
+
+	/*
+	 * Constructor of the HutQueryIndex class
+	 */
+	HutQueryIndex(HutStore store) {
+		this.store = store;
+		this.indexedRows = 0;
+		this.runs = new ArrayList<>();
+	}
+
+	/**
+	 * Mountain huts with effective altitude within the given bounds (inclusive)
+	 * and at least the given number of beds, sorted by altitude.
+	 *
+	 * @param minAltitude: the minimum altitude
+	 * @param maxAltitude: the maximum altitude
+	 * @param minBeds: the minimum number of beds
+	 * @return the list of mountain huts
+	 */
+	synchronized List<MountainHut> inAltitudeRange(int minAltitude, int maxAltitude, int minBeds) {
+
+		refresh();
+
+		List<long[]> matches = new ArrayList<>(this.runs.size());
+		for(Run run : this.runs)
+			matches.add(run.inAltitudeRange(minAltitude, maxAltitude, minBeds));
+
+		return huts(mergeKeys(matches, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * The mountain huts of a province with the highest number of beds,
+	 * sorted by decreasing number of beds.
+	 *
+	 * @param province: the province code
+	 * @param k: the maximum number of huts returned
+	 * @return the list of mountain huts
+	 */
+	synchronized List<MountainHut> topByBeds(int province, int k) {
+
+		refresh();
+
+		List<long[]> huts = new ArrayList<>(this.runs.size());
+		for(Run run : this.runs) {
+			if(province >= 0 && province < run.byBedsPerProvince.length)
+				huts.add(run.byBedsPerProvince[province]);
+		}
+
+		return huts(mergeKeys(huts, k));
+	}
+
+	private List<MountainHut> huts(long[] keys) {
+
+		List<MountainHut> retValue = new ArrayList<>(keys.length);
+
+		for(long key : keys)
+			retValue.add(this.store.hut(row(key)));
+
+		return retValue;
+	}
+
+	/**
+	 * Index the huts added to the store since the last refresh into a new run,
+	 * merging it with the previous runs as long as they are not more than twice as large
+	 */
+	private void refresh() {
+
+		int size = this.store.size();
+		if(size == this.indexedRows)
+			return;
+
+		Run run = new Run(this.store, this.indexedRows, size);
+		while(!this.runs.isEmpty() && this.runs.get(this.runs.size() - 1).size() <= 2 * run.size())
+			run = this.runs.remove(this.runs.size() - 1).merge(run);
+		this.runs.add(run);
+
+		this.indexedRows = size;
+	}
+
+	/**
+	 * Indexes of a slice of the rows of the store
+	 */
+	private static class Run {
+
+		// Rows of a range maximum block, scanned directly
+		private final static int BLOCK = 32;
+
+		private HutStore store;
+		private long[] byAltitude;
+		// Number of beds of the huts, in the order of byAltitude
+		private int[] beds;
+		// maxBeds[l][b]: position of the hut with the most beds in blocks b to b + 2^l - 1
+		private int[][] maxBeds;
+		private long[][] byBedsPerProvince;
+
+		/*
+		 * Run indexing the rows from the first one (inclusive) to the last one (exclusive)
+		 */
+		Run(HutStore store, int from, int to) {
+
+			this.store = store;
+
+			int added = to - from;
+			this.byAltitude = new long[added];
+			int[] perProvince = new int[store.provinces().size()];
+
+			for(int i = 0; i < added; i++) {
+				int row = from + i;
+				this.byAltitude[i] = key(store.effectiveAltitude(row), row);
+				perProvince[store.province(row)]++;
+			}
+			Arrays.sort(this.byAltitude);
+
+			// Decreasing number of beds: the complement of the beds is sorted in increasing order
+			this.byBedsPerProvince = new long[perProvince.length][];
+			for(int p = 0; p < perProvince.length; p++)
+				this.byBedsPerProvince[p] = new long[perProvince[p]];
+			Arrays.fill(perProvince, 0);
+			for(int row = from; row < to; row++) {
+				int p = store.province(row);
+				this.byBedsPerProvince[p][perProvince[p]++] = key(~store.beds(row), row);
+			}
+			for(long[] huts : this.byBedsPerProvince)
+				Arrays.sort(huts);
+
+			buildMaxBeds();
+		}
+
+		private Run(HutStore store, long[] byAltitude, long[][] byBedsPerProvince) {
+			this.store = store;
+			this.byAltitude = byAltitude;
+			this.byBedsPerProvince = byBedsPerProvince;
+			buildMaxBeds();
+		}
+
+		int size() {
+			return this.byAltitude.length;
+		}
+
+		/**
+		 * Merge a newer run into this one
+		 */
+		Run merge(Run newer) {
+
+			long[][] byBeds = new long[Math.max(this.byBedsPerProvince.length, newer.byBedsPerProvince.length)][];
+			for(int p = 0; p < byBeds.length; p++) {
+				long[] a = p < this.byBedsPerProvince.length ? this.byBedsPerProvince[p] : new long[0];
+				long[] b = p < newer.byBedsPerProvince.length ? newer.byBedsPerProvince[p] : new long[0];
+				byBeds[p] = HutQueryIndex.merge(a, b);
+			}
+
+			return new Run(this.store, HutQueryIndex.merge(this.byAltitude, newer.byAltitude), byBeds);
+		}
+
+		/**
+		 * Sparse table of the positions with the most beds over blocks of BLOCK huts
+		 */
+		private void buildMaxBeds() {
+
+			int size = this.byAltitude.length;
+			this.beds = new int[size];
+			for(int i = 0; i < size; i++)
+				this.beds[i] = this.store.beds(row(this.byAltitude[i]));
+
+			int blocks = (size + BLOCK - 1) / BLOCK;
+			int levels = blocks == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(blocks);
+			this.maxBeds = new int[levels][];
+
+			if(levels > 0) {
+				this.maxBeds[0] = new int[blocks];
+				for(int b = 0; b < blocks; b++)
+					this.maxBeds[0][b] = scan(b * BLOCK, Math.min(size, (b + 1) * BLOCK));
+			}
+			for(int l = 1; l < levels; l++) {
+				int[] previous = this.maxBeds[l-1];
+				int half = 1 << (l - 1);
+				this.maxBeds[l] = new int[blocks - (1 << l) + 1];
+				for(int b = 0; b < this.maxBeds[l].length; b++)
+					this.maxBeds[l][b] = most(previous[b], previous[b + half]);
+			}
+		}
+
+		/**
+		 * Keys of the huts within the altitude bounds (inclusive) with at least the given beds, sorted
+		 */
+		long[] inAltitudeRange(int minAltitude, int maxAltitude, int minBeds) {
+
+			int from = lowerBound(this.byAltitude, key(minAltitude, 0));
+			int to = maxAltitude == Integer.MAX_VALUE ? this.byAltitude.length : lowerBound(this.byAltitude, key(maxAltitude + 1, 0));
+
+			long[] retValue = new long[16];
+			int count = 0;
+
+			// Pending windows as (from, to) pairs, or (position, -1) for a hut to be returned:
+			// the left part of a window is processed before its maximum and the right part
+			int[] stack = new int[32];
+			int top = 0;
+			if(from < to) {
+				stack[top++] = from;
+				stack[top++] = to;
+			}
+
+			while(top > 0) {
+				int end = stack[--top];
+				int start = stack[--top];
+
+				if(end < 0) {
+					if(count == retValue.length)
+						retValue = Arrays.copyOf(retValue, 2 * count);
+					retValue[count++] = this.byAltitude[start];
+					continue;
+				}
+
+				int p = maximum(start, end);
+				if(this.beds[p] < minBeds)
+					continue;
+
+				if(top + 6 > stack.length)
+					stack = Arrays.copyOf(stack, 2 * stack.length);
+				if(p + 1 < end) {
+					stack[top++] = p + 1;
+					stack[top++] = end;
+				}
+				stack[top++] = p;
+				stack[top++] = -1;
+				if(start < p) {
+					stack[top++] = start;
+					stack[top++] = p;
+				}
+			}
+
+			return Arrays.copyOf(retValue, count);
+		}
+
+		/**
+		 * Position of the hut with the most beds between from (inclusive) and to (exclusive),
+		 * scanning at most two partial blocks
+		 */
+		private int maximum(int from, int to) {
+
+			int first = from / BLOCK;
+			int last = (to - 1) / BLOCK;
+
+			if(last - first <= 1)
+				return scan(from, to);
+
+			int retValue = most(scan(from, (first + 1) * BLOCK), scan(last * BLOCK, to));
+			int blocks = last - first - 1;
+			int l = 31 - Integer.numberOfLeadingZeros(blocks);
+
+			retValue = most(retValue, this.maxBeds[l][first + 1]);
+			return most(retValue, this.maxBeds[l][last - (1 << l)]);
+		}
+
+		private int scan(int from, int to) {
+
+			int retValue = from;
+
+			for(int i = from + 1; i < to; i++) {
+				if(this.beds[i] > this.beds[retValue])
+					retValue = i;
+			}
+
+			return retValue;
+		}
+
+		private int most(int a, int b) {
+			return this.beds[b] > this.beds[a] ? b : a;
+		}
+	}
+
+	private static long key(int value, int row) {
+		return ((long) value << 32) | row;
+	}
+
+	private static int row(long key) {
+		return (int) key;
+	}
+
+	/**
+	 * Index of the first key not lower than the given one
+	 */
+	private static int lowerBound(long[] keys, long key) {
+
+		int low = 0;
+		int high = keys.length;
+
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(keys[mid] < key)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		return low;
+	}
+
+	/**
+	 * Merge two sorted arrays of keys
+	 */
+	private static long[] merge(long[] a, long[] b) {
+
+		long[] retValue = new long[a.length + b.length];
+		int i = 0, j = 0, k = 0;
+
+		while(i < a.length && j < b.length)
+			retValue[k++] = a[i] <= b[j] ? a[i++] : b[j++];
+		while(i < a.length)
+			retValue[k++] = a[i++];
+		while(j < b.length)
+			retValue[k++] = b[j++];
+
+		return retValue;
+	}
+
+	/**
+	 * Merge many sorted arrays of keys, keeping at most the given number of keys
+	 */
+	private static long[] mergeKeys(List<long[]> lists, int limit) {
+
+		if(lists.size() == 1) {
+			long[] keys = lists.get(0);
+			return keys.length <= limit ? keys : Arrays.copyOf(keys, limit);
+		}
+
+		// Cursors as (list, position) pairs, ordered by the key they point to
+		PriorityQueue<int[]> cursors = new PriorityQueue<>(Math.max(1, lists.size()),
+				(x, y) -> Long.compare(lists.get(x[0])[x[1]], lists.get(y[0])[y[1]]));
+		int total = 0;
+		for(int i = 0; i < lists.size(); i++) {
+			if(lists.get(i).length > 0)
+				cursors.add(new int[] { i, 0 });
+			total += lists.get(i).length;
+		}
+
+		long[] retValue = new long[Math.min(total, limit)];
+		for(int k = 0; k < retValue.length; k++) {
+			int[] cursor = cursors.poll();
+			long[] keys = lists.get(cursor[0]);
+			retValue[k] = keys[cursor[1]++];
+			if(cursor[1] < keys.length)
+				cursors.add(cursor);
+		}
+
+		return retValue;
+	}
+
+}
@@ -0,0 +1,44 @@
+package mountainhuts;
+
+/**
+ * Represents a parsed line of a mountain huts CSV file.
+ *
+ * It is an intermediate value produced by the {@link RegionLoader}
+ * before the data is added to a {@link Region}.
+ *
+ */
+class HutRow {
+
+	final String province;
+	final String municipality;
+	final int municipalityAltitude;
+	final String name;
+	final Integer altitude;
+	final String category;
+	final int bedsNumber;
+
+	/*
+	 * Constructor of the HutRow class
+	 */
+	HutRow(String province, String municipality, int municipalityAltitude, String name, Integer altitude, String category, int bedsNumber) {
+		this.province = province;
+		this.municipality = municipality;
+		this.municipalityAltitude = municipalityAltitude;
+		this.name = name;
+		this.altitude = altitude;
+		this.category = category;
+		this.bedsNumber = bedsNumber;
+	}
+
+	/**
+	 * Add the content of the row to the given region, creating
+	 * the municipality and the mountain hut if they are not already available.
+	 *
+	 * @param region: the region to be populated
+	 */
+	void addTo(Region region) {
+		Municipality m = region.createOrGetMunicipality(this.municipality, this.province, this.municipalityAltitude);
+		region.createOrGetMountainHut(this.name, this.altitude, this.category, this.bedsNumber, m);
+	}
+
+}
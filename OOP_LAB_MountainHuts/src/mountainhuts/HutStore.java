@@ -0,0 +1,354 @@
+package mountainhuts;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar storage of the municipalities and mountain huts of a {@link Region}.
+ *
+ * The data of the mountain huts is kept into parallel primitive arrays indexed by
+ * row: altitude, beds number, municipality index and category code.
+ * Provinces and categories are dictionary encoded, so each distinct string is stored once.
+ * {@link MountainHut} objects are lightweight views over a row of the store.
+ * <p>
+ * A single thread may add municipalities and mountain huts while other threads
+ * read the ones already added: rows are never changed once added, the columns are
+ * grown by copying them into new arrays held by volatile fields, and the counts are
+ * updated last. A thread that read a count can therefore read every row below it.
+ *
+ */
+class HutStore {
+
+	/**
+	 * Value of the altitude columns when the altitude is not available
+	 */
+	final static int MISSING = Integer.MIN_VALUE;
+
+	private final static int INITIAL_CAPACITY = 64;
+
+	private StringDictionary provinces;
+	private StringDictionary categories;
+
+	// Municipality columns, indexed by municipality index
+	private volatile int municipalityCount;
+	private volatile Municipality[] municipalities;
+	private volatile int[] municipalityProvinces;
+	private volatile int[] municipalityAltitudes;
+	private volatile boolean[] municipalityForeign;
+	// Municipalities created outside the region and referenced by its huts
+	private Map<Municipality, Integer> foreignMunicipalities;
+
+	// Mountain hut columns, indexed by row
+	private volatile int size;
+	private volatile MountainHut[] huts;
+	private volatile String[] names;
+	private volatile int[] altitudes;
+	private volatile int[] beds;
+	private volatile int[] hutMunicipalities;
+	private volatile int[] hutCategories;
+
+	/*
+	 * Constructor of the HutStore class
+	 */
+	HutStore() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Create a store sized for the given number of municipalities and mountain huts,
+	 * e.g. a single row for a mountain hut that does not belong to any region.
+	 * The columns grow as usual when more rows are added.
+	 *
+	 * @param capacity: the initial number of rows, at least 1
+	 */
+	HutStore(int capacity) {
+		this.provinces = new StringDictionary();
+		this.categories = new StringDictionary();
+		this.municipalityCount = 0;
+		this.municipalities = new Municipality[capacity];
+		this.municipalityProvinces = new int[capacity];
+		this.municipalityAltitudes = new int[capacity];
+		this.municipalityForeign = new boolean[capacity];
+		this.foreignMunicipalities = new IdentityHashMap<>(capacity);
+		this.size = 0;
+		this.huts = new MountainHut[capacity];
+		this.names = new String[capacity];
+		this.altitudes = new int[capacity];
+		this.beds = new int[capacity];
+		this.hutMunicipalities = new int[capacity];
+		this.hutCategories = new int[capacity];
+	}
+
+	/**
+	 * Add a new municipality to the store.
+	 *
+	 * @param name: the municipality name
+	 * @param province: the municipality province
+	 * @param altitude: the municipality altitude
+	 * @return the municipality
+	 */
+	Municipality addMunicipality(String name, String province, Integer altitude) {
+
+		int index = this.municipalityCount;
+		int code = this.provinces.encode(province);
+		Municipality m = new Municipality(name, this.provinces.decode(code), altitude, index);
+
+		addMunicipalityColumns(m, code, false);
+		return m;
+	}
+
+	/**
+	 * Return the index of a municipality, registering it if it was not created by this store.
+	 *
+	 * @param m: the municipality
+	 * @return the index of the municipality
+	 */
+	int municipalityIndex(Municipality m) {
+
+		int index = m.index();
+
+		if(index >= 0 && index < this.municipalityCount && this.municipalities[index] == m)
+			return index;
+
+		Integer foreign = this.foreignMunicipalities.get(m);
+		if(foreign == null) {
+			foreign = this.municipalityCount;
+			this.foreignMunicipalities.put(m, foreign);
+			addMunicipalityColumns(m, this.provinces.encode(m.getProvince()), true);
+		}
+
+		return foreign;
+	}
+
+	private void addMunicipalityColumns(Municipality m, int province, boolean foreign) {
+
+		int index = this.municipalityCount;
+
+		if(index == this.municipalities.length) {
+			this.municipalities = Arrays.copyOf(this.municipalities, 2 * index);
+			this.municipalityProvinces = Arrays.copyOf(this.municipalityProvinces, 2 * index);
+			this.municipalityAltitudes = Arrays.copyOf(this.municipalityAltitudes, 2 * index);
+			this.municipalityForeign = Arrays.copyOf(this.municipalityForeign, 2 * index);
+		}
+
+		this.municipalities[index] = m;
+		this.municipalityProvinces[index] = province;
+		this.municipalityAltitudes[index] = m.getAltitude() == null ? MISSING : m.getAltitude();
+		this.municipalityForeign[index] = foreign;
+		this.municipalityCount = index + 1;
+	}
+
+	/**
+	 * Add a new mountain hut to the store.
+	 *
+	 * @param name: the mountain hut name
+	 * @param altitude: the mountain hut altitude, may be null
+	 * @param category: the mountain hut category
+	 * @param bedsNumber: the number of beds in the mountain hut
+	 * @param municipality: the municipality in which the mountain hut is located
+	 * @return the mountain hut
+	 * @throws IllegalArgumentException if the number of beds is null
+	 */
+	MountainHut addMountainHut(String name, Integer altitude, String category, Integer bedsNumber, Municipality municipality) {
+
+		int row = this.size;
+
+		// The beds column has no sentinel: every statistic sums or compares the beds
+		if(bedsNumber == null)
+			throw new IllegalArgumentException("Missing beds number for mountain hut " + name);
+
+		if(row == this.names.length) {
+			int capacity = 2 * row;
+			this.huts = Arrays.copyOf(this.huts, capacity);
+			this.names = Arrays.copyOf(this.names, capacity);
+			this.altitudes = Arrays.copyOf(this.altitudes, capacity);
+			this.beds = Arrays.copyOf(this.beds, capacity);
+			this.hutMunicipalities = Arrays.copyOf(this.hutMunicipalities, capacity);
+			this.hutCategories = Arrays.copyOf(this.hutCategories, capacity);
+		}
+
+		this.names[row] = name;
+		this.altitudes[row] = altitude == null ? MISSING : altitude;
+		this.beds[row] = bedsNumber;
+		this.hutMunicipalities[row] = municipalityIndex(municipality);
+		this.hutCategories[row] = this.categories.encode(category);
+		this.huts[row] = new MountainHut(this, row);
+		this.size++;
+
+		return this.huts[row];
+	}
+
+	/**
+	 * Fill an empty store with whole columns, as read from a snapshot.
+	 * The column arrays are owned by the store afterwards; the codes are validated
+	 * while the views of the municipalities and of the mountain huts are created.
+	 *
+	 * @param provinces: the provinces, in order of code
+	 * @param categories: the categories, in order of code
+	 * @param municipalityNames: the names of the municipalities, in order of index
+	 * @param municipalityProvinces: the province code of each municipality
+	 * @param municipalityAltitudes: the altitude of each municipality, or {@link #MISSING}
+	 * @param foreign: whether each municipality was created outside the region
+	 * @param names: the names of the mountain huts, in order of row
+	 * @param altitudes: the altitude of each mountain hut, or {@link #MISSING}
+	 * @param beds: the number of beds of each mountain hut
+	 * @param hutMunicipalities: the municipality index of each mountain hut
+	 * @param hutCategories: the category code of each mountain hut
+	 * @throws IllegalArgumentException if a dictionary contains duplicates or a code is out of range
+	 */
+	void loadColumns(String[] provinces, String[] categories, String[] municipalityNames, int[] municipalityProvinces,
+			int[] municipalityAltitudes, boolean[] foreign, String[] names, int[] altitudes, int[] beds,
+			int[] hutMunicipalities, int[] hutCategories) {
+
+		if(this.size > 0 || this.municipalityCount > 0)
+			throw new IllegalStateException("The store is not empty");
+
+		for(String province : provinces) {
+			if(this.provinces.encode(province) != this.provinces.size() - 1)
+				throw new IllegalArgumentException("Duplicate province " + province);
+		}
+		for(String category : categories) {
+			if(this.categories.encode(category) != this.categories.size() - 1)
+				throw new IllegalArgumentException("Duplicate category " + category);
+		}
+
+		// Small stores keep the initial capacity, so that later insertions can double it
+		int count = municipalityNames.length;
+		this.municipalities = new Municipality[Math.max(count, INITIAL_CAPACITY)];
+		this.municipalityProvinces = Arrays.copyOf(municipalityProvinces, Math.max(count, INITIAL_CAPACITY));
+		this.municipalityAltitudes = Arrays.copyOf(municipalityAltitudes, Math.max(count, INITIAL_CAPACITY));
+		this.municipalityForeign = Arrays.copyOf(foreign, Math.max(count, INITIAL_CAPACITY));
+		for(int i = 0; i < count; i++) {
+			int province = municipalityProvinces[i];
+			int altitude = municipalityAltitudes[i];
+			if(province < 0 || province >= provinces.length)
+				throw new IllegalArgumentException("Invalid province code " + province);
+
+			Municipality m = new Municipality(municipalityNames[i], this.provinces.decode(province),
+					altitude == MISSING ? null : altitude, foreign[i] ? -1 : i);
+			this.municipalities[i] = m;
+			if(foreign[i])
+				this.foreignMunicipalities.put(m, i);
+		}
+		this.municipalityCount = count;
+
+		int size = names.length;
+		int capacity = Math.max(size, INITIAL_CAPACITY);
+		this.names = Arrays.copyOf(names, capacity);
+		this.altitudes = altitudes.length < capacity ? Arrays.copyOf(altitudes, capacity) : altitudes;
+		this.beds = beds.length < capacity ? Arrays.copyOf(beds, capacity) : beds;
+		this.hutMunicipalities = hutMunicipalities.length < capacity ? Arrays.copyOf(hutMunicipalities, capacity) : hutMunicipalities;
+		this.hutCategories = hutCategories.length < capacity ? Arrays.copyOf(hutCategories, capacity) : hutCategories;
+		this.huts = new MountainHut[capacity];
+		for(int row = 0; row < size; row++) {
+			if(hutMunicipalities[row] < 0 || hutMunicipalities[row] >= count)
+				throw new IllegalArgumentException("Invalid municipality index " + hutMunicipalities[row]);
+			if(hutCategories[row] < 0 || hutCategories[row] >= categories.length)
+				throw new IllegalArgumentException("Invalid category code " + hutCategories[row]);
+			this.huts[row] = new MountainHut(this, row);
+		}
+		this.size = size;
+	}
+
+	/**
+	 * Number of mountain huts in the store
+	 */
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * All the mountain huts, in insertion order
+	 */
+	List<MountainHut> huts() {
+		return new AbstractList<MountainHut>() {
+			public MountainHut get(int row) {
+				if(row < 0 || row >= HutStore.this.size)
+					throw new IndexOutOfBoundsException(row);
+				return HutStore.this.huts[row];
+			}
+
+			public int size() {
+				return HutStore.this.size;
+			}
+		};
+	}
+
+	MountainHut hut(int row) {
+		return this.huts[row];
+	}
+
+	String name(int row) {
+		return this.names[row];
+	}
+
+	/**
+	 * Altitude of the mountain hut, or {@link #MISSING}
+	 */
+	int altitude(int row) {
+		return this.altitudes[row];
+	}
+
+	/**
+	 * Altitude of the mountain hut or, if it is not available, of its municipality
+	 */
+	int effectiveAltitude(int row) {
+		int altitude = this.altitudes[row];
+		return altitude != MISSING ? altitude : this.municipalityAltitudes[this.hutMunicipalities[row]];
+	}
+
+	int beds(int row) {
+		return this.beds[row];
+	}
+
+	int category(int row) {
+		return this.hutCategories[row];
+	}
+
+	int municipality(int row) {
+		return this.hutMunicipalities[row];
+	}
+
+	/**
+	 * Province code of the municipality of the mountain hut
+	 */
+	int province(int row) {
+		return this.municipalityProvinces[this.hutMunicipalities[row]];
+	}
+
+	/**
+	 * Number of municipalities referenced by the store
+	 */
+	int municipalityCount() {
+		return this.municipalityCount;
+	}
+
+	Municipality municipalityAt(int index) {
+		if(index >= this.municipalityCount)
+			throw new IndexOutOfBoundsException(index);
+		return this.municipalities[index];
+	}
+
+	/**
+	 * Check whether a municipality was created outside the region
+	 */
+	boolean isForeign(int index) {
+		return this.municipalityForeign[index];
+	}
+
+	int municipalityProvince(int index) {
+		return this.municipalityProvinces[index];
+	}
+
+	StringDictionary provinces() {
+		return this.provinces;
+	}
+
+	StringDictionary categories() {
+		return this.categories;
+	}
+
+}
@@ -0,0 +1,66 @@
+package mountainhuts;
+
+/**
+ * HyperLogLog estimator of the number of distinct values.
+ *
+ * It uses 2^{@value #PRECISION} one-byte registers (4 KiB), whatever the number of values.
+ * The relative standard error of the estimate is 1.04 / sqrt(2^{@value #PRECISION}),
+ * about 1.6%; small cardinalities are estimated with linear counting, which
+ * is almost exact up to a few thousand distinct values.
+ *
+ */
+class HyperLogLog {
+
+	final static int PRECISION = 12;
+
+	private final static int REGISTERS = 1 << PRECISION;
+
+	private byte[] registers;
+
+	/*
+	 * Constructor of the HyperLogLog class
+	 */
+	HyperLogLog() {
+		this.registers = new byte[REGISTERS];
+	}
+
+	/**
+	 * Account for a value.
+	 *
+	 * @param value: the value
+	 */
+	void add(String value) {
+
+		long hash = Hashing.hash(value);
+		int register = (int) (hash >>> (64 - PRECISION));
+		// Position of the first set bit among the remaining ones
+		int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+
+		if(rank > this.registers[register])
+			this.registers[register] = (byte) rank;
+	}
+
+	/**
+	 * Estimated number of distinct values added
+	 */
+	long estimate() {
+
+		double sum = 0;
+		int zeros = 0;
+
+		for(byte r : this.registers) {
+			sum += 1.0 / (1L << r);
+			if(r == 0)
+				zeros++;
+		}
+
+		double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+		double estimate = alpha * REGISTERS * REGISTERS / sum;
+
+		if(estimate <= 2.5 * REGISTERS && zeros > 0)
+			estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+
+		return Math.round(estimate);
+	}
+
+}
@@ -0,0 +1,41 @@
+package mountainhuts;
+
+import java.io.IOException;
+
+/**
+ * Listener notified while a {@link Region} is loaded from a CSV file,
+ * with {@link Region#fromFile(String, String, LoadListener)} or {@link Region#reload()}.
+ *
+ * All the methods are invoked by the thread performing the load,
+ * rejected lines are notified in the order they appear in the file.
+ *
+ */
+public interface LoadListener {
+
+	/**
+	 * Invoked for each line that cannot be parsed; the line is skipped.
+	 *
+	 * @param lineNumber: number of the line in the file, the header being line 1
+	 * @param line: content of the line
+	 * @param reason: description of the error
+	 */
+	default void lineRejected(long lineNumber, String line, String reason) {
+	}
+
+	/**
+	 * Invoked when the load completes.
+	 *
+	 * @param report: metrics of the load
+	 */
+	default void loadCompleted(LoadReport report) {
+	}
+
+	/**
+	 * Invoked when the load is aborted by an I/O error.
+	 *
+	 * @param error: the error
+	 */
+	default void loadFailed(IOException error) {
+	}
+
+}
@@ -0,0 +1,189 @@
+package mountainhuts;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Metrics of a load of a {@link Region} from a CSV file.
+ *
+ * Timings are split in three phases:
+ * <ul>
+ * <li>read: time spent reading the file,
+ * <li>parse: time spent parsing the lines, summed over all the worker threads,
+ * <li>index: time spent adding the parsed rows to the region.
+ * </ul>
+ * Since reading and parsing overlap, the phases may add up to more than the elapsed time.
+ * At most {@link #MAX_REJECTED_LINES} rejected lines are kept in the report,
+ * all of them are notified to the {@link LoadListener} anyway.
+ *
+ */
+public class LoadReport {
+
+	public final static int MAX_REJECTED_LINES = 1000;
+
+	private long rows;
+	private long bytes;
+	private long rejectedCount;
+	private Map<Long, String> rejectedLines;
+	private long readNanos;
+	private long parseNanos;
+	private long indexNanos;
+	private long elapsedNanos;
+
+	// Offset following the last line read, and number of the next line
+	private long endOffset;
+	private long nextLine;
+
+	/*
+	 * Constructor of the LoadReport class
+	 */
+	LoadReport() {
+		this.rejectedLines = new LinkedHashMap<>();
+	}
+
+	void addRows(long rows) {
+		this.rows += rows;
+	}
+
+	void addBytes(long bytes) {
+		this.bytes += bytes;
+	}
+
+	void addRejected(long lineNumber, String line) {
+		this.rejectedCount++;
+		if(this.rejectedLines.size() < MAX_REJECTED_LINES)
+			this.rejectedLines.put(lineNumber, line);
+	}
+
+	void addReadNanos(long nanos) {
+		this.readNanos += nanos;
+	}
+
+	void addParseNanos(long nanos) {
+		this.parseNanos += nanos;
+	}
+
+	void addIndexNanos(long nanos) {
+		this.indexNanos += nanos;
+	}
+
+	void complete(long elapsedNanos, long endOffset, long nextLine) {
+		this.elapsedNanos = elapsedNanos;
+		this.endOffset = endOffset;
+		this.nextLine = nextLine;
+	}
+
+	long endOffset() {
+		return this.endOffset;
+	}
+
+	long nextLine() {
+		return this.nextLine;
+	}
+
+	/**
+	 * Number of rows parsed and added to the region.
+	 *
+	 * @return the number of rows
+	 */
+	public long getRows() {
+		return this.rows;
+	}
+
+	/**
+	 * Number of bytes read from the file.
+	 *
+	 * @return the number of bytes
+	 */
+	public long getBytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * Number of lines rejected because they could not be parsed.
+	 *
+	 * @return the number of rejected lines
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount;
+	}
+
+	/**
+	 * Rejected lines, in the order they appear in the file.
+	 *
+	 * @return a map with the line number as key and the content of the line as value
+	 */
+	public Map<Long, String> getRejectedLines() {
+		return Collections.unmodifiableMap(this.rejectedLines);
+	}
+
+	/**
+	 * Time spent by the loading thread reading chunks from the file.
+	 * The worker threads parse the previous chunks meanwhile, so this time
+	 * overlaps with the parse time.
+	 *
+	 * @return the read time
+	 */
+	public Duration getReadTime() {
+		return Duration.ofNanos(this.readNanos);
+	}
+
+	/**
+	 * Time spent splitting and decoding the lines, summed over all the worker threads.
+	 * With more than one worker it may exceed the elapsed time.
+	 *
+	 * @return the parse time
+	 */
+	public Duration getParseTime() {
+		return Duration.ofNanos(this.parseNanos);
+	}
+
+	/**
+	 * Time spent by the loading thread adding the parsed rows to the region,
+	 * updating its indexes and statistics.
+	 *
+	 * @return the index time
+	 */
+	public Duration getIndexTime() {
+		return Duration.ofNanos(this.indexNanos);
+	}
+
+	/**
+	 * Wall clock time of the whole load, from opening the file to the last row added.
+	 * The three phases overlap, so they do not add up to this time.
+	 *
+	 * @return the elapsed time
+	 */
+	public Duration getElapsedTime() {
+		return Duration.ofNanos(this.elapsedNanos);
+	}
+
+	/**
+	 * Throughput of the load in rows per second of elapsed time.
+	 *
+	 * @return the number of rows per second
+	 */
+	public double getRowsPerSecond() {
+		return this.elapsedNanos == 0 ? 0 : this.rows * 1e9 / this.elapsedNanos;
+	}
+
+	/**
+	 * Throughput of the load in bytes per second of elapsed time.
+	 *
+	 * @return the number of bytes per second
+	 */
+	public double getBytesPerSecond() {
+		return this.elapsedNanos == 0 ? 0 : this.bytes * 1e9 / this.elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d rows, %d bytes, %d rejected in %d ms (%.0f rows/s, %.0f bytes/s; read %d ms, parse %d ms, index %d ms)",
+				this.rows, this.bytes, this.rejectedCount, this.elapsedNanos / 1_000_000,
+				getRowsPerSecond(), getBytesPerSecond(),
+				this.readNanos / 1_000_000, this.parseNanos / 1_000_000, this.indexNanos / 1_000_000);
+	}
+
+}
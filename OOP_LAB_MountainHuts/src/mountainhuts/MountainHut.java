@@ -6,26 +6,33 @@ import java.util.Optional;
  * Represents a mountain hut.
  * 
  * It is linked to a {@link Municipality}
+ * 
+ * The data of the hut is kept by the {@link HutStore} of its region,
+ * the object is just a view over one of its rows.
  *
  */
 public class MountainHut {
 
-	private String name;
-	private String category;
-	private Integer numOfBeds;
-	private Optional<Integer> altitude;
-	private Municipality location;
+	private HutStore store;
+	private int row;
 	
 	
 	/*
-	 * Constructor of the MountainHut class
+	 * Constructor of a mountain hut that does not belong to any region:
+	 * its data is kept by a store sized for this hut only
 	 */
 	public MountainHut(String name, String category, Integer numOfBeds, Optional<Integer> altitude, Municipality location) {
-		this.name = name;
-		this.category = category;
-		this.numOfBeds = numOfBeds;
-		this.location = location;
-		this.altitude = altitude;
+		this.store = new HutStore(1);
+		this.row = 0;
+		this.store.addMountainHut(name, altitude.orElse(null), category, numOfBeds, location);
+	}
+	
+	/*
+	 * Constructor of the MountainHut class
+	 */
+	MountainHut(HutStore store, int row) {
+		this.store = store;
+		this.row = row;
 	}
 	
 	/**
@@ -33,7 +40,7 @@ public class MountainHut {
 	 * @return name
 	 */
 	public String getName() {
-		return this.name;
+		return this.store.name(this.row);
 	}
 
 	/**
@@ -43,7 +50,9 @@ public class MountainHut {
 	 * @return optional containing the altitude
 	 */
 	public Optional<Integer> getAltitude() {
-		return this.altitude;
+		int altitude = this.store.altitude(this.row);
+		
+		return altitude == HutStore.MISSING ? Optional.empty() : Optional.of(altitude);
 	}
 
 	/**
@@ -52,7 +61,7 @@ public class MountainHut {
 	 * @return the category
 	 */
 	public String getCategory() {
-		return this.category;
+		return this.store.categories().decode(this.store.category(this.row));
 	}
 
 	/**
@@ -60,7 +69,7 @@ public class MountainHut {
 	 * @return number of beds
 	 */
 	public Integer getBedsNumber() {
-		return this.numOfBeds;
+		return this.store.beds(this.row);
 	}
 
 	/**
@@ -69,7 +78,14 @@ public class MountainHut {
 	 * @return municipality
 	 */
 	public Municipality getMunicipality() {
-		return this.location;
+		return this.store.municipalityAt(this.store.municipality(this.row));
+	}
+
+	/*
+	 * Row of the hut inside the store of its region
+	 */
+	int row() {
+		return this.row;
 	}
 
 }
@@ -9,14 +9,23 @@ public class Municipality {
 	private String name;
 	private String province;
 	private Integer altitude;
+	private int index; // Position inside the store of the region that created it, -1 if none
 	
 	/*
 	 * Constructor of the Municipality class
 	 */
 	public Municipality(String name, String province, Integer altitude) {
+		this(name, province, altitude, -1);
+	}
+	
+	/*
+	 * Constructor used by the region to create a municipality in its store
+	 */
+	Municipality(String name, String province, Integer altitude, int index) {
 		this.name = name;
 		this.province = province;
 		this.altitude = altitude;
+		this.index = index;
 	}
 	
 	/**
@@ -47,4 +56,11 @@ public class Municipality {
 		return altitude;
 	}
 
+	/*
+	 * Index of the municipality inside the store of its region
+	 */
+	int index() {
+		return this.index;
+	}
+
 }
@@ -0,0 +1,81 @@
+package mountainhuts;
+
+/**
+ * Quantile sketch with relative accuracy, in the style of DDSketch.
+ *
+ * Positive values are counted in logarithmic buckets: bucket {@code i} covers
+ * the values in (gamma^(i-1), gamma^i] with gamma = (1 + a) / (1 - a), and it is
+ * represented by the value with relative distance at most {@code a} from both ends.
+ * A quantile is therefore estimated with relative error at most {@value #ACCURACY},
+ * using a fixed array of buckets covering every {@code int} value (about 9 KiB).
+ * Values not greater than zero are counted together as zero.
+ *
+ */
+class QuantileSketch {
+
+	final static double ACCURACY = 0.01;
+
+	private final static double GAMMA = (1 + ACCURACY) / (1 - ACCURACY);
+	private final static double LOG_GAMMA = Math.log(GAMMA);
+	private final static int BUCKETS = (int) Math.ceil(Math.log(Integer.MAX_VALUE) / LOG_GAMMA) + 1;
+
+	private long zeros;
+	private long count;
+	private long[] buckets;
+
+	/*
+	 * Constructor of the QuantileSketch class
+	 */
+	QuantileSketch() {
+		this.buckets = new long[BUCKETS];
+	}
+
+	/**
+	 * Account for a value.
+	 *
+	 * @param value: the value
+	 */
+	void add(int value) {
+
+		if(value <= 0)
+			this.zeros++;
+		else
+			this.buckets[(int) Math.ceil(Math.log(value) / LOG_GAMMA)]++;
+
+		this.count++;
+	}
+
+	/**
+	 * Number of values added
+	 */
+	long count() {
+		return this.count;
+	}
+
+	/**
+	 * Estimate of the value with the given rank among the ones added.
+	 *
+	 * @param quantile: the rank, between 0 (minimum) and 1 (maximum)
+	 * @return the estimated value, {@code NaN} if no value has been added
+	 */
+	double quantile(double quantile) {
+
+		if(this.count == 0)
+			return Double.NaN;
+
+		long rank = (long) Math.floor(Math.max(0, Math.min(1, quantile)) * (this.count - 1));
+
+		if(rank < this.zeros)
+			return 0;
+
+		long seen = this.zeros;
+		for(int i = 0; i < this.buckets.length; i++) {
+			seen += this.buckets[i];
+			if(seen > rank)
+				return 2 * Math.pow(GAMMA, i) / (GAMMA + 1);
+		}
+
+		return Double.NaN;
+	}
+
+}
@@ -1,20 +1,17 @@
 package mountainhuts;
 
-import static java.util.stream.Collectors.toList;
-
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.List;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Optional;
-import java.util.function.Function;
-import java.util.function.Consumer;
-import java.util.stream.Stream;
 
 /**
  * Class {@code Region} represents the main facade
@@ -26,13 +23,36 @@ import java.util.stream.Stream;
  */
 public class Region {
 
-	private final static String NO_RANGE = "0-INF";
+	final static String NO_RANGE = "0-INF";
 	
 	private String name;
-	private String[] altitudeRanges;
+	private AltitudeRangeIndex altitudeRanges;
+	
+	// Name-keyed indexes: lookups are O(1) while iteration keeps the insertion order
+	private Map<String, Municipality> municipalities;
+	private Map<String, MountainHut> huts;	
+	
+	// Columnar storage of the data, huts are views over its rows
+	private HutStore store;
 	
-	private LinkedList<Municipality> municipalities;
-	private LinkedList<MountainHut> huts;	
+	// Statistics kept up to date on every insertion
+	private RegionStatistics statistics;
+	// Sorted indexes for range and top-k queries
+	private HutQueryIndex queries;
+	// Pre-aggregated province x category x altitude range cube
+	private HutCube cube;
+	// Trigram index of the names of the huts
+	private HutNameIndex names;
+	
+	// File the region was loaded from, the offset following the last line read and the number of the next line
+	private String sourceFile;
+	private long sourceOffset;
+	private long sourceLine;
+	private LoadListener loadListener;
+	private LoadReport loadReport;
+	
+	// Incremented on every change of the data or of the altitude ranges
+	private long version;
 	
 	/**
 	 * Create a region with the given name.
@@ -41,9 +61,20 @@ public class Region {
 	 */
 	public Region(String name) {
 		this.name = name;
-		this.altitudeRanges = null;
-		this.huts = new LinkedList<>();
-		this.municipalities = new LinkedList<>();
+		this.altitudeRanges = new AltitudeRangeIndex();
+		this.store = new HutStore();
+		this.statistics = new RegionStatistics(this.store, this.altitudeRanges);
+		this.queries = new HutQueryIndex(this.store);
+		this.cube = new HutCube(this.store, this.altitudeRanges);
+		this.names = new HutNameIndex(this.store);
+		this.sourceFile = null;
+		this.sourceOffset = 0;
+		this.sourceLine = 1;
+		this.loadListener = null;
+		this.loadReport = null;
+		this.version = 0;
+		this.huts = new HashMap<>();
+		this.municipalities = new LinkedHashMap<>();
 	}
 
 	/**
@@ -63,7 +94,12 @@ public class Region {
 	 * @param ranges: an array of textual ranges
 	 */
 	public void setAltitudeRanges(String... ranges) {
-		this.altitudeRanges = ranges;
+		// The ranges are parsed once here, lookups only perform a binary search
+		this.altitudeRanges = new AltitudeRangeIndex(ranges);
+		// Only the huts are bucketed again, the other statistics do not depend on the ranges
+		this.statistics.setRanges(this.altitudeRanges);
+		this.cube.setRanges(this.altitudeRanges);
+		this.version++;
 	}
 	
 	/**
@@ -75,27 +111,12 @@ public class Region {
 	 */
 	public String getAltitudeRange(Integer altitude) {
 		
-		int minValue;
-		int maxValue;
-		String retValue = NO_RANGE;
-		String[] range;
-		
-		// If ranges haven't been set up it will return null
-		if(this.altitudeRanges == null)
-			return retValue;
+		int range = this.altitudeRanges.rangeOf(altitude);
 		
-		for(String tmp : this.altitudeRanges){
-			// I know the format of the string and therefore i know the number of value (of type String) are contained inside range[]
-			range = tmp.split("-");
-			minValue = Integer.parseInt(range[0]); 
-			maxValue = Integer.parseInt(range[1]);
-			
-			if(altitude >= minValue && altitude <= maxValue)
-				retValue = tmp;
-			
-		}
+		if(range == AltitudeRangeIndex.NO_RANGE)
+			return NO_RANGE;
 		
-		return retValue;
+		return this.altitudeRanges.label(range);
 	}
 	
 
@@ -110,18 +131,15 @@ public class Region {
 	 */
 	public Municipality createOrGetMunicipality(String name, String province, Integer altitude) {
 		
-		Municipality retValue;
-		Iterator<Municipality> i = this.municipalities.iterator();
+		Municipality retValue = this.municipalities.get(name);
 		
-		for(; i.hasNext(); ) {			
-			retValue = i.next();
-			if(retValue.getName().equals(name))
-				return retValue;
+		if(retValue == null) {
+			retValue = this.store.addMunicipality(name, province, altitude);
+			this.municipalities.put(name, retValue);
+			this.statistics.addMunicipality(retValue.index());
+			this.version++;
 		}
 		
-		retValue = new Municipality(name, province, altitude);
-		this.municipalities.add(retValue);
-		
 		return retValue;
 	}
 
@@ -132,7 +150,7 @@ public class Region {
 	 */
 	public Collection<Municipality> getMunicipalities() {
 		
-		return this.municipalities;
+		return this.municipalities.values();
 	}
 
 	/**
@@ -144,6 +162,7 @@ public class Region {
 	 * @param bedsNumber: the number of beds in the mountain hut
 	 * @param municipality: the municipality in which the mountain hut is located
 	 * @return the mountain hut
+	 * @throws IllegalArgumentException if a new mountain hut has a null number of beds
 	 */
 	public MountainHut createOrGetMountainHut(String name, String category, Integer bedsNumber, Municipality municipality) {
 		
@@ -160,22 +179,20 @@ public class Region {
 	 * @param bedsNumber: the number of beds in the mountain hut
 	 * @param municipality: the municipality in which the mountain hut is located
 	 * @return a mountain hut
+	 * @throws IllegalArgumentException if a new mountain hut has a null number of beds
 	 */
 	public MountainHut createOrGetMountainHut(String name, Integer altitude, String category, Integer bedsNumber, Municipality municipality) {
 		
-		MountainHut retValue;
-		Iterator<MountainHut> i = this.huts.iterator();
-		Optional<Integer> alt = Optional.ofNullable(altitude);
+		MountainHut retValue = this.huts.get(name);
 		
-		for(; i.hasNext(); ) {
-			retValue = i.next();
-			if(retValue.getName().equals(name))
-				return retValue;
+		if(retValue == null) {
+			retValue = this.store.addMountainHut(name, altitude, category, bedsNumber, municipality);
+			this.huts.put(name, retValue);
+			this.statistics.addMountainHut(retValue.row());
+			this.cube.addMountainHut(retValue.row());
+			this.version++;
 		}
 				
-		retValue = new MountainHut(name, category, bedsNumber, alt, municipality);
-		this.huts.add(retValue);
-				
 		return retValue;
 	}
 
@@ -185,7 +202,48 @@ public class Region {
 	 * @return a collection of mountain huts
 	 */
 	public Collection<MountainHut> getMountainHuts() {
-		return this.huts;
+		// The store keeps the huts in insertion order
+		return this.store.huts();
+	}
+
+	/**
+	 * Return the mountain huts whose altitude is within the given bounds (inclusive)
+	 * and that have at least the given number of beds, sorted by altitude.
+	 * If the altitude of the mountain hut is not available, use the altitude of its municipality.
+	 * 
+	 * @param minAltitude: the minimum altitude
+	 * @param maxAltitude: the maximum altitude
+	 * @param minBeds: the minimum number of beds
+	 * @return a list of mountain huts
+	 */
+	public List<MountainHut> getMountainHutsInAltitudeRange(int minAltitude, int maxAltitude, int minBeds) {
+		return this.queries.inAltitudeRange(minAltitude, maxAltitude, minBeds);
+	}
+
+	/**
+	 * Return the k mountain huts of a province with the highest number of beds,
+	 * sorted by decreasing number of beds.
+	 * 
+	 * @param province: the province
+	 * @param k: the maximum number of mountain huts returned
+	 * @return a list of mountain huts
+	 */
+	public List<MountainHut> getTopMountainHutsByBeds(String province, int k) {
+		return this.queries.topByBeds(this.store.provinces().codeOf(province), k);
+	}
+
+	/**
+	 * Search the mountain huts by name, tolerating partial names and misspellings.
+	 * Case, accents and punctuation are ignored, e.g. "alpe forna" finds "ALPE FORNA'".
+	 * The huts are sorted by decreasing similarity of their names with the query,
+	 * huts not sharing any group of three consecutive characters with it are not returned.
+	 * 
+	 * @param query: the name, or part of it
+	 * @param k: the maximum number of mountain huts returned
+	 * @return a list of mountain huts
+	 */
+	public List<MountainHut> searchMountainHuts(String query, int k) {
+		return this.names.search(query, k);
 	}
 
 	/**
@@ -203,66 +261,218 @@ public class Region {
 	 * </ul>
 	 * 
 	 * The fields are separated by a semicolon (';'). The field {@code "Altitude"}
-	 * may be empty.
+	 * may be empty. Malformed lines are skipped.
 	 * 
 	 * @param name: the name of the region
 	 * @param file: the path of the file
 	 */
 	public static Region fromFile(String name, String file) {
+		return fromFile(name, file, null);
+	}
+
+	/**
+	 * Factory method that creates a new region by loading its data from a file,
+	 * notifying the given listener of the rejected lines and of the outcome of the load.
+	 * The listener is kept and notified by the following reloads as well.
+	 * 
+	 * @param name: the name of the region
+	 * @param file: the path of the file
+	 * @param listener: the listener of the load
+	 * @return the region, or {@code null} in case of errors while reading the file
+	 */
+	public static Region fromFile(String name, String file, LoadListener listener) {
 		
-		Region newRegion;
-		List<String> lines = readData(file);
+		Region newRegion = new Region(name);
 		
-		if(lines == null) {
-			newRegion = null;
+		return newRegion.loadFile(file, listener) ? newRegion : null;
+	}
+
+	/**
+	 * Load the content of a CSV file into this region, remembering
+	 * the file so that it can be reloaded later.
+	 * 
+	 * @param file: the path of the file
+	 * @param listener: the listener of the load, may be {@code null}
+	 * @return {@code false} in case of errors while reading the file
+	 */
+	boolean loadFile(String file, LoadListener listener) {
+		
+		this.loadListener = listener;
+		try {
+			// The file is streamed and parsed in chunks, it is never held in memory as a whole
+			load(file, 0, 1, true);
+			this.sourceFile = file;
+		}
+		catch(IOException e) {
+			System.err.println(e.getMessage());
+			return false;
 		}
-		else {
-			newRegion = new Region(name);
+		
+		return true;
+	}
+	
+	/**
+	 * Load part of a file and notify the listener of the outcome
+	 */
+	private void load(String file, long offset, long line, boolean partialLastLine) throws IOException {
+		
+		try {
+			this.loadReport = new RegionLoader().load(row -> row.addTo(this), file, offset, line, partialLastLine, this.loadListener);
+		}
+		catch(IOException e) {
+			if(this.loadListener != null)
+				this.loadListener.loadFailed(e);
+			throw e;
+		}
+		
+		this.sourceOffset = this.loadReport.endOffset();
+		this.sourceLine = this.loadReport.nextLine();
+		if(this.loadListener != null)
+			this.loadListener.loadCompleted(this.loadReport);
+	}
+
+	/**
+	 * Return the metrics of the last load or reload from file.
+	 * 
+	 * @return the report, or {@code null} if the region was not loaded from a file
+	 */
+	public LoadReport getLoadReport() {
+		return this.loadReport;
+	}
+
+
+	/**
+	 * Read the lines appended to the file the region was loaded from
+	 * with {@link #fromFile(String, String)} since the last load or reload.
+	 * 
+	 * Only the new lines are parsed and their municipalities and mountain huts
+	 * are added to the region, updating the statistics and indexes in place.
+	 * A last line without terminator is considered incomplete and it is left
+	 * for the next reload. Only the load performed by {@code fromFile} reads such
+	 * a line: in that case the bytes appended to it, up to its terminator, are
+	 * considered part of the line already read and they are skipped.
+	 * 
+	 * @return the number of mountain huts added
+	 * @throws IOException in case of errors while reading the file, or if the file has been truncated
+	 */
+	public int reload() throws IOException {
+		
+		int before = this.store.size();
+		
+		if(this.sourceFile == null)
+			throw new IllegalStateException("Region " + this.name + " was not loaded from a file");
+		if(Files.size(Path.of(this.sourceFile)) < this.sourceOffset)
+			throw new IOException("File truncated: " + this.sourceFile);
+		
+		load(this.sourceFile, skipRestOfLine(this.sourceFile, this.sourceOffset), this.sourceLine, false);
+		
+		return this.store.size() - before;
+	}
+	
+	/**
+	 * Return the offset of the first line following the given offset.
+	 * The offset is returned as it is if it already follows a line terminator,
+	 * or if the line it belongs to is not terminated yet.
+	 */
+	private static long skipRestOfLine(String file, long offset) throws IOException {
+		
+		if(offset == 0)
+			return offset;
+		
+		try (FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(8192);
+			long position = offset - 1;
 			
-			lines.stream().skip(1).forEach(new Consumer<String>() {
-				public void accept(String line) {
-					String[] fields = line.split(";");
-					Integer altitude;
-					
-					// Create the Municipality
-					Municipality tmp = newRegion.createOrGetMunicipality(fields[1], fields[0], Integer.valueOf(fields[2]));
-					
-					// Check if the altitude is empty
-					if(fields[4].isBlank()) {
-						altitude = null;
-					}
-					else {
-						altitude = Integer.valueOf(fields[4]);
-					}
-					
-					// Create the MountainHut
-					newRegion.createOrGetMountainHut(fields[3], altitude, fields[5], Integer.valueOf(fields[6]), tmp);
+			while(channel.read(buffer.clear(), position) > 0) {
+				buffer.flip();
+				for(int i = 0; i < buffer.limit(); i++) {
+					if(buffer.get(i) == '\n')
+						return position + i + 1;
 				}
-			});
+				position += buffer.limit();
+			}
 		}
 		
-		return newRegion;
+		return offset;
+	}
+
+	/**
+	 * Save the region into a binary snapshot file.
+	 * The snapshot contains municipalities, mountain huts and altitude ranges
+	 * and it can be loaded again with {@link #fromSnapshot(String)}.
+	 * 
+	 * @param file: the path of the file
+	 * @throws IOException in case of errors while writing the file
+	 */
+	public void saveSnapshot(String file) throws IOException {
+		RegionSnapshot.save(this.name, this.altitudeRanges, this.store, this.store.size(), file);
 	}
 
 	/**
-	 * Internal class that can be used to read the lines of
-	 * a text file into a list of strings.
+	 * Factory method that creates a new region by loading a binary snapshot
+	 * previously written by {@link #saveSnapshot(String)}.
 	 * 
-	 * When reading a CSV file remember that the first line
-	 * contains the headers, while the real data is contained
-	 * in the following lines.
+	 * The file is memory mapped and validated, then its columns are copied in bulk
+	 * into the store of the region, without parsing any text. The name indexes and
+	 * the statistics are rebuilt with one pass over the rows, while the range, top-k
+	 * and name search indexes are built by the first query that needs them.
 	 * 
-	 * @param file the file name
-	 * @return a list containing the lines of the file
+	 * @param file: the path of the file
+	 * @return the region
+	 * @throws IOException in case of errors while reading the file or if the snapshot is not valid
 	 */
-	@SuppressWarnings("unused")
-	private static List<String> readData(String file) {
-		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
-			return in.lines().collect(toList());
-		} catch (IOException e) {
-			System.err.println(e.getMessage());
-			return null;
+	public static Region fromSnapshot(String file) throws IOException {
+		return RegionSnapshot.load(file);
+	}
+
+	/*
+	 * Columnar storage of the region data
+	 */
+	HutStore store() {
+		return this.store;
+	}
+
+	/*
+	 * Number of changes of the data or of the altitude ranges, used to detect
+	 * whether results computed from the region are still valid
+	 */
+	long version() {
+		return this.version;
+	}
+
+	/*
+	 * Altitude ranges currently defined
+	 */
+	AltitudeRangeIndex altitudeRanges() {
+		return this.altitudeRanges;
+	}
+
+	/*
+	 * Rebuild the name indexes and the aggregates after the store of an empty region
+	 * was filled in bulk. Throws IllegalArgumentException if the names are not unique.
+	 */
+	void storeLoaded() {
+
+		int municipalityCount = this.store.municipalityCount();
+		int hutCount = this.store.size();
+
+		this.municipalities = new LinkedHashMap<>(2 * municipalityCount);
+		for(int index = 0; index < municipalityCount; index++) {
+			Municipality m = this.store.municipalityAt(index);
+			if(!this.store.isForeign(index) && this.municipalities.put(m.getName(), m) != null)
+				throw new IllegalArgumentException("Duplicate municipality " + m.getName());
+		}
+
+		this.huts = new HashMap<>(2 * hutCount);
+		for(int row = 0; row < hutCount; row++) {
+			if(this.huts.put(this.store.name(row), this.store.hut(row)) != null)
+				throw new IllegalArgumentException("Duplicate mountain hut " + this.store.name(row));
 		}
+
+		this.statistics.rebuild();
+		for(int row = 0; row < hutCount; row++)
+			this.cube.addMountainHut(row);
+		this.version++;
 	}
 
 	/**
@@ -273,25 +483,7 @@ public class Region {
 	 *         value
 	 */
 	public Map<String, Long> countMunicipalitiesPerProvince() {
-		
-		Map<String, Long> retValue = new HashMap<>(this.municipalities.size()/2);
-		
-		this.municipalities.stream().map(Municipality::getProvince).forEach(new Consumer<String>(){
-			public void accept(String province) {
-				
-				Long numInProvince = null;
-				
-				if(retValue.containsKey(province))
-					numInProvince = retValue.get(province);
-				else
-					numInProvince = Long.valueOf(0);
-				
-				numInProvince = numInProvince + 1;
-				retValue.put(province, numInProvince);
-			}
-		});;
-		
-		return retValue;
+		return this.statistics.municipalitiesPerProvince();
 	}
 
 	/**
@@ -301,33 +493,7 @@ public class Region {
 	 *         municipality as key and the number of mountain huts as value
 	 */
 	public Map<String, Map<String, Long>> countMountainHutsPerMunicipalityPerProvince() {
-		
-		Map<String, Map<String, Long>> retValue = new HashMap<>(this.municipalities.size()/2);
-		Map<String, Long> insideMap = new HashMap<>((this.huts.size())/2);
-		
-		this.municipalities.stream().map(Municipality::getProvince).distinct().forEach(new Consumer<String>() {
-			public void accept(String province) {
-				
-				huts.stream().filter(h -> h.getMunicipality().getProvince().equals(province)).forEach(new Consumer<MountainHut>() {
-					public void accept(MountainHut hut) {
-						
-						Long numInMunicipality = null;
-						
-						if(insideMap.containsKey(hut.getMunicipality().getName()))
-							numInMunicipality = insideMap.get(hut.getMunicipality().getName());
-						else 
-							numInMunicipality = Long.valueOf(0);
-						
-						numInMunicipality = numInMunicipality + 1;
-						insideMap.put(hut.getMunicipality().getName(), numInMunicipality);
-					}
-				});
-				
-				retValue.put(province, insideMap);
-			}
-		});
-		
-		return retValue;
+		return this.statistics.mountainHutsPerMunicipalityPerProvince();
 	}
 
 	/**
@@ -338,36 +504,7 @@ public class Region {
 	 *         as value
 	 */
 	public Map<String, Long> countMountainHutsPerAltitudeRange() {
-		
-		Map<String, Long> retValue = new HashMap<>(this.huts.size()/2);		
-		
-		this.huts.stream().map(new Function<MountainHut, Integer>(){
-			public Integer apply(MountainHut tmp) {
-				
-				if(tmp.getAltitude().isPresent())
-					return tmp.getAltitude().get();
-				else
-					return tmp.getMunicipality().getAltitude();
-				
-			}
-		}).forEach(new Consumer<Integer>() {
-			public void accept(Integer altitude) {
-				
-				String altitudeRange = getAltitudeRange(altitude);				
-				Long numHutsPerAltitude = null;
-				
-				if(retValue.containsKey(altitudeRange))
-					numHutsPerAltitude = retValue.get(altitudeRange);
-				else 
-					numHutsPerAltitude = Long.valueOf(0);
-				
-				numHutsPerAltitude = numHutsPerAltitude + 1;
-				retValue.put(altitudeRange, numHutsPerAltitude);
-				
-			}
-		});
-		
-		return retValue;
+		return this.statistics.mountainHutsPerAltitudeRange();
 	}
 
 	/**
@@ -377,28 +514,7 @@ public class Region {
 	 * @return a map with the province as key and the total number of beds as value
 	 */
 	public Map<String, Integer> totalBedsNumberPerProvince() {
-		
-		Map<String, Integer> retValue = new HashMap<>(this.huts.size()/2);
-		
-		this.huts.stream().forEach(new Consumer<MountainHut>() {
-			public void accept(MountainHut tmp) {
-					
-				String province = tmp.getMunicipality().getProvince();
-				Integer totalBeds = null;
-				
-				if(retValue.containsKey(province))
-					totalBeds = retValue.get(province);
-				else
-					totalBeds = Integer.valueOf(0);
-				
-				totalBeds = totalBeds + tmp.getBedsNumber();
-				retValue.put(province, totalBeds);
-				
-			}
-		});
-		
-		
-		return retValue;
+		return this.statistics.bedsPerProvince();
 	}
 
 	/**
@@ -410,33 +526,7 @@ public class Region {
 	 *         as value
 	 */
 	public Map<String, Optional<Integer>> maximumBedsNumberPerAltitudeRange() {
-		
-		Map<String, Optional<Integer>> retValue = new HashMap<>(this.huts.size()/2);	
-		
-		this.huts.stream().forEach(new Consumer<MountainHut>() {
-			public void accept(MountainHut tmp) {
-				
-				Integer altitude;
-				Integer numOfBeds;
-				String altitudeRange;
-				
-				if(tmp.getAltitude().isPresent())
-					altitude = tmp.getAltitude().get();
-				else
-					altitude = tmp.getMunicipality().getAltitude();
-				
-				altitudeRange = getAltitudeRange(altitude);
-				if(retValue.containsKey(altitudeRange) && retValue.get(altitudeRange).isPresent())
-					numOfBeds = retValue.get(altitudeRange).get();
-				else
-					numOfBeds = Integer.MIN_VALUE;
-				
-				if(tmp.getBedsNumber() > numOfBeds)
-					retValue.put(altitudeRange, Optional.ofNullable(tmp.getBedsNumber()));
-			}
-		});
-				
-		return retValue;
+		return this.statistics.maximumBedsPerAltitudeRange();
 	}
 
 	/**
@@ -447,49 +537,59 @@ public class Region {
 	 *         list of municipality names as value
 	 */
 	public Map<Long, List<String>> municipalityNamesPerCountOfMountainHuts() {
-		
-		Map<Long, List<String>> retValue = new HashMap<>(this.huts.size()/2);
-		Map<String, Long> countHutsPerMunicipality = new HashMap<>(this.municipalities.size());
-		
-		/**
-		 * Creating a temporary map using the municipality's name as key and 
-		 * the number of huts as value.
-		 */
-		this.huts.stream().map(h -> h.getMunicipality()).forEach(new Consumer<Municipality>() {
-			public void accept(Municipality m) {
-				
-				Long counter = null;
-				
-				if(countHutsPerMunicipality.containsKey(m.getName()))
-					counter = countHutsPerMunicipality.get(m.getName());
-				else
-					counter = Long.valueOf(0);
-				
-				countHutsPerMunicipality.put(m.getName(), counter+1);
-			}
-		});
-		
-		/**
-		 * After populating the temporary map, it will be reversed to populate the output map.
-		 * The forEach loop will add the name of the municipality in a list of strings whenever the counter match a key already inserted. 
-		 */
-		countHutsPerMunicipality.keySet().stream().sorted().forEach(new Consumer<String>() {
-			public void accept(String s) {
-				
-				List<String> munNames;
-				Long counter = countHutsPerMunicipality.get(s);
-				
-				if(retValue.containsKey(counter))
-					munNames = retValue.get(counter);
-				else
-					munNames = new LinkedList<>();
-				
-				munNames.add(s);
-				retValue.put(counter, munNames);				
-			}
-		});;
-				
-		return retValue;
+		return this.statistics.municipalityNamesPerCountOfMountainHuts();
+	}
+
+	/**
+	 * Execute a group-by query over the mountain huts of the region.
+	 * 
+	 * @param query: the query, built with {@link HutQuery#groupBy(HutQuery.Dimension)}
+	 * @return a map with the group as key and the aggregated value as value
+	 */
+	public Map<String, Long> aggregate(HutQuery query) {
+		return query.execute(this.store, this.altitudeRanges, this.store.size());
+	}
+
+	/**
+	 * Count the number of mountain huts in a slice of the province, category and
+	 * altitude range dimensions. A {@code null} value includes all the values of
+	 * the corresponding dimension, e.g. {@code countMountainHuts("TO", null, "1000-2000")}
+	 * counts the huts of any category in the given province and altitude range.
+	 * If the altitude of the mountain hut is not available, use the altitude of its municipality.
+	 * 
+	 * @param province: the province, or {@code null} for all the provinces
+	 * @param category: the category, or {@code null} for all the categories
+	 * @param altitudeRange: the altitude range, or {@code null} for all the ranges
+	 * @return the number of mountain huts
+	 */
+	public long countMountainHuts(String province, String category, String altitudeRange) {
+		return this.cube.count(province, category, altitudeRange);
+	}
+
+	/**
+	 * Compute the total number of beds in a slice of the province, category and
+	 * altitude range dimensions, as {@link #countMountainHuts(String, String, String)}.
+	 * 
+	 * @param province: the province, or {@code null} for all the provinces
+	 * @param category: the category, or {@code null} for all the categories
+	 * @param altitudeRange: the altitude range, or {@code null} for all the ranges
+	 * @return the total number of beds
+	 */
+	public long totalBedsNumber(String province, String category, String altitudeRange) {
+		return this.cube.totalBeds(province, category, altitudeRange);
+	}
+
+	/**
+	 * Compute the maximum number of beds in a single mountain hut in a slice of the
+	 * province, category and altitude range dimensions, as {@link #countMountainHuts(String, String, String)}.
+	 * 
+	 * @param province: the province, or {@code null} for all the provinces
+	 * @param category: the category, or {@code null} for all the categories
+	 * @param altitudeRange: the altitude range, or {@code null} for all the ranges
+	 * @return the maximum number of beds, empty if the slice contains no mountain huts
+	 */
+	public Optional<Integer> maximumBedsNumber(String province, String category, String altitudeRange) {
+		return this.cube.maxBeds(province, category, altitudeRange);
 	}
 
 }
@@ -0,0 +1,286 @@
+package mountainhuts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Class {@code RegionFederation} is a facade over many {@link Region}s,
+ * e.g. all the administrative regions of a country.
+ *
+ * It computes the same statistics as a single region over all of them:
+ * the statistics of the regions are computed in parallel on a fork/join pool
+ * and the partial results are merged together.
+ * Municipalities with the same name in different regions are considered
+ * the same municipality, both when counting the municipalities and the mountain huts.
+ * <p>
+ * The merged statistics are computed once and reused by all the methods,
+ * until a region is added, the altitude ranges are changed or any region is modified.
+ *
+ */
+public class RegionFederation {
+
+	private List<Region> regions;
+	private String[] altitudeRanges;
+	private ForkJoinPool pool;
+
+	// Merged statistics and the versions of the regions they were computed from
+	private Partial statistics;
+	private long[] versions;
+
+	/**
+	 * Create an empty federation using the common fork/join pool.
+	 */
+	public RegionFederation() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Create an empty federation using the given fork/join pool.
+	 *
+	 * @param pool: the pool used to compute the statistics
+	 */
+	public RegionFederation(ForkJoinPool pool) {
+		this.regions = new ArrayList<>();
+		this.altitudeRanges = null;
+		this.pool = pool;
+		this.statistics = null;
+		this.versions = null;
+	}
+
+	/**
+	 * Add a region to the federation.
+	 * If altitude ranges have been defined for the federation, they are applied to the region:
+	 * the altitude ranges previously defined on the region object are replaced.
+	 *
+	 * @param region: the region to be added
+	 */
+	public synchronized void addRegion(Region region) {
+		if(this.altitudeRanges != null)
+			region.setAltitudeRanges(this.altitudeRanges);
+		this.regions.add(region);
+		this.statistics = null;
+	}
+
+	/**
+	 * Return all the regions of the federation.
+	 *
+	 * @return a collection of regions
+	 */
+	public Collection<Region> getRegions() {
+		return Collections.unmodifiableList(this.regions);
+	}
+
+	/**
+	 * Define the altitude ranges of all the regions, given their textual
+	 * representation in the format "[minValue]-[maxValue]".
+	 * The ranges are set on the region objects themselves, replacing their own ranges.
+	 *
+	 * @param ranges: an array of textual ranges
+	 */
+	public synchronized void setAltitudeRanges(String... ranges) {
+		this.altitudeRanges = ranges;
+		this.regions.forEach(r -> r.setAltitudeRanges(ranges));
+		this.statistics = null;
+	}
+
+	/**
+	 * Count the number of municipalities per each province in all the regions.
+	 *
+	 * @return a map with the province as key and the number of municipalities as value
+	 */
+	public Map<String, Long> countMunicipalitiesPerProvince() {
+
+		Map<String, Long> retValue = new HashMap<>();
+
+		aggregate().municipalitiesPerProvince.forEach((province, names) -> retValue.put(province, (long) names.size()));
+
+		return retValue;
+	}
+
+	/**
+	 * Count the number of mountain huts per each municipality within each province in all the regions.
+	 *
+	 * @return a map with the province as key and, as value, a map with the
+	 *         municipality as key and the number of mountain huts as value
+	 */
+	public Map<String, Map<String, Long>> countMountainHutsPerMunicipalityPerProvince() {
+
+		Map<String, Map<String, Long>> retValue = new HashMap<>();
+
+		aggregate().hutsPerMunicipalityPerProvince.forEach((province, counts) -> retValue.put(province, new HashMap<>(counts)));
+
+		return retValue;
+	}
+
+	/**
+	 * Count the number of mountain huts per altitude range in all the regions.
+	 *
+	 * @return a map with the altitude range as key and the number of mountain huts as value
+	 */
+	public Map<String, Long> countMountainHutsPerAltitudeRange() {
+		return new HashMap<>(aggregate().hutsPerAltitudeRange);
+	}
+
+	/**
+	 * Compute the total number of beds available in the mountain huts per each province in all the regions.
+	 *
+	 * @return a map with the province as key and the total number of beds as value
+	 */
+	public Map<String, Integer> totalBedsNumberPerProvince() {
+		return new HashMap<>(aggregate().bedsPerProvince);
+	}
+
+	/**
+	 * Compute the maximum number of beds available in a single mountain hut per
+	 * altitude range in all the regions.
+	 *
+	 * @return a map with the altitude range as key and the maximum number of beds as value
+	 */
+	public Map<String, Optional<Integer>> maximumBedsNumberPerAltitudeRange() {
+		return new HashMap<>(aggregate().maxBedsPerAltitudeRange);
+	}
+
+	/**
+	 * Compute the municipality names per number of mountain huts in a municipality in all the regions.
+	 * The lists of municipality names are in alphabetical order.
+	 *
+	 * @return a map with the number of mountain huts in a municipality as key and a
+	 *         list of municipality names as value
+	 */
+	public Map<Long, List<String>> municipalityNamesPerCountOfMountainHuts() {
+
+		Map<Long, List<String>> retValue = new HashMap<>();
+
+		new TreeMap<>(aggregate().hutsPerMunicipality).forEach((name, count) -> retValue.computeIfAbsent(count, c -> new ArrayList<>()).add(name));
+
+		return retValue;
+	}
+
+	/**
+	 * Return the statistics of all the regions, computing them in parallel only if
+	 * a region was added or modified since the last time.
+	 * The result is shared: the public methods return copies of its maps.
+	 */
+	private synchronized Partial aggregate() {
+
+		long[] current = new long[this.regions.size()];
+		for(int i = 0; i < current.length; i++)
+			current[i] = this.regions.get(i).version();
+
+		if(this.statistics == null || !Arrays.equals(current, this.versions)) {
+			if(this.regions.isEmpty())
+				this.statistics = new Partial();
+			else
+				this.statistics = this.pool.invoke(new AggregateTask(this.regions, 0, this.regions.size()));
+			this.versions = current;
+		}
+
+		return this.statistics;
+	}
+
+	/**
+	 * Task computing the statistics of a slice of the regions,
+	 * splitting it in halves until a single region is left.
+	 */
+	private static class AggregateTask extends RecursiveTask<Partial> {
+
+		private static final long serialVersionUID = 1L;
+
+		private List<Region> regions;
+		private int from;
+		private int to;
+
+		AggregateTask(List<Region> regions, int from, int to) {
+			this.regions = regions;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Partial compute() {
+
+			if(this.to - this.from == 1)
+				return new Partial(this.regions.get(this.from));
+
+			int middle = (this.from + this.to) >>> 1;
+			AggregateTask left = new AggregateTask(this.regions, this.from, middle);
+			AggregateTask right = new AggregateTask(this.regions, middle, this.to);
+
+			left.fork();
+			return right.compute().merge(left.join());
+		}
+	}
+
+	/**
+	 * Partial statistics of one or more regions, which can be merged together.
+	 */
+	static class Partial {
+
+		// Names of the municipalities of each province, so that shared names are counted once
+		Map<String, Set<String>> municipalitiesPerProvince;
+		Map<String, Map<String, Long>> hutsPerMunicipalityPerProvince;
+		Map<String, Long> hutsPerAltitudeRange;
+		Map<String, Integer> bedsPerProvince;
+		Map<String, Optional<Integer>> maxBedsPerAltitudeRange;
+		Map<String, Long> hutsPerMunicipality;
+
+		/*
+		 * Empty partial result
+		 */
+		Partial() {
+			this.municipalitiesPerProvince = new HashMap<>();
+			this.hutsPerMunicipalityPerProvince = new HashMap<>();
+			this.hutsPerAltitudeRange = new HashMap<>();
+			this.bedsPerProvince = new HashMap<>();
+			this.maxBedsPerAltitudeRange = new HashMap<>();
+			this.hutsPerMunicipality = new HashMap<>();
+		}
+
+		/*
+		 * Partial result of a single region
+		 */
+		Partial(Region region) {
+			this.municipalitiesPerProvince = new HashMap<>();
+			region.getMunicipalities().forEach(m -> this.municipalitiesPerProvince.computeIfAbsent(m.getProvince(), p -> new HashSet<>()).add(m.getName()));
+			this.hutsPerMunicipalityPerProvince = region.countMountainHutsPerMunicipalityPerProvince();
+			this.hutsPerAltitudeRange = region.countMountainHutsPerAltitudeRange();
+			this.bedsPerProvince = region.totalBedsNumberPerProvince();
+			this.maxBedsPerAltitudeRange = region.maximumBedsNumberPerAltitudeRange();
+			this.hutsPerMunicipality = new HashMap<>();
+			this.hutsPerMunicipalityPerProvince.values().forEach(m -> m.forEach((name, count) -> this.hutsPerMunicipality.merge(name, count, Long::sum)));
+		}
+
+		/**
+		 * Merge another partial result into this one.
+		 *
+		 * @param other: the partial result to be merged
+		 * @return this partial result
+		 */
+		Partial merge(Partial other) {
+
+			other.municipalitiesPerProvince.forEach((province, names) -> this.municipalitiesPerProvince.computeIfAbsent(province, p -> new HashSet<>()).addAll(names));
+			other.hutsPerMunicipalityPerProvince.forEach((province, counts) -> {
+				Map<String, Long> merged = this.hutsPerMunicipalityPerProvince.computeIfAbsent(province, p -> new HashMap<>());
+				counts.forEach((k, v) -> merged.merge(k, v, Long::sum));
+			});
+			other.hutsPerAltitudeRange.forEach((k, v) -> this.hutsPerAltitudeRange.merge(k, v, Long::sum));
+			other.bedsPerProvince.forEach((k, v) -> this.bedsPerProvince.merge(k, v, Integer::sum));
+			other.maxBedsPerAltitudeRange.forEach((k, v) -> this.maxBedsPerAltitudeRange.merge(k, v, (a, b) -> a.isPresent() && (b.isEmpty() || a.get() >= b.get()) ? a : b));
+			other.hutsPerMunicipality.forEach((k, v) -> this.hutsPerMunicipality.merge(k, v, Long::sum));
+
+			return this;
+		}
+	}
+
+}
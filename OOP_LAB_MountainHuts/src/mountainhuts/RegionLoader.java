@@ -0,0 +1,399 @@
+package mountainhuts;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Streaming loader for the mountain huts CSV files.
+ *
+ * The file is read through a {@link FileChannel} in chunks that are cut at their
+ * last line terminator. Chunks are parsed in parallel by a pool of worker threads,
+ * while the resulting rows are passed to a consumer, usually adding them to a {@link Region},
+ * by the calling thread in the same order they appear in the file.
+ * Only a bounded number of chunks is in flight at any time, so the memory
+ * used by the loader does not depend on the size of the file.
+ * Lines that cannot be parsed are skipped and notified to the {@link LoadListener},
+ * the metrics of the load are collected into a {@link LoadReport}.
+ *
+ */
+class RegionLoader {
+
+	final static int CHUNK_SIZE = 1 << 20;
+
+	private final static byte SEPARATOR = ';';
+	final static int NUM_OF_FIELDS = 7;
+
+	private int parallelism;
+	
+	// State of the load in progress, only accessed by the calling thread
+	private LoadListener listener;
+	private LoadReport report;
+	private long nextLine;
+	private long readNanos;
+
+	/*
+	 * Constructor of the RegionLoader class, using one worker per available core
+	 */
+	RegionLoader() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/*
+	 * Constructor of the RegionLoader class
+	 */
+	RegionLoader(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Read the given CSV file, starting at the given offset, and pass its rows to the consumer.
+	 * When reading from the beginning of the file the first line contains the headers and it is skipped.
+	 *
+	 * @param sink: the consumer of the rows, e.g. adding them to a region
+	 * @param file: the path of the file
+	 * @param offset: the offset of the first byte to be read, it must be at the beginning of a line
+	 * @param firstLine: the number of the line starting at the given offset
+	 * @param partialLastLine: whether a last line without terminator must be read as well
+	 * @param listener: the listener notified of rejected lines, may be {@code null}
+	 * @return the report of the load, including the offset following the last line read
+	 * @throws IOException in case of errors while reading the file
+	 */
+	LoadReport load(Consumer<HutRow> sink, String file, long offset, long firstLine, boolean partialLastLine, LoadListener listener) throws IOException {
+
+		long startTime = System.nanoTime();
+		
+		this.listener = listener;
+		this.report = new LoadReport();
+		// The header is line 1, the first row follows it
+		this.nextLine = offset == 0 ? firstLine + 1 : firstLine;
+
+		long consumed = scan(file, offset, partialLastLine, RegionLoader::parseChunk, parsed -> addRows(sink, parsed));
+
+		this.report.addReadNanos(this.readNanos);
+		this.report.addBytes(consumed - offset);
+		this.report.complete(System.nanoTime() - startTime, consumed, consumed == offset ? firstLine : this.nextLine);
+		return this.report;
+	}
+
+	/**
+	 * Read the given CSV file in chunks, starting at the given offset, parse them in parallel
+	 * and pass the results to the consumer in the same order of the chunks.
+	 * When reading from the beginning of the file the first line contains the headers and it is skipped.
+	 *
+	 * @param file: the path of the file
+	 * @param offset: the offset of the first byte to be read, it must be at the beginning of a line
+	 * @param partialLastLine: whether a last line without terminator must be read as well
+	 * @param parser: the parser of a chunk, invoked by the worker threads
+	 * @param consumer: the consumer of the results, invoked by the calling thread
+	 * @return the offset following the last line read
+	 * @throws IOException in case of errors while reading the file
+	 */
+	<T> long scan(String file, long offset, boolean partialLastLine, ChunkParser<T> parser, Consumer<T> consumer) throws IOException {
+
+		ExecutorService workers = Executors.newFixedThreadPool(this.parallelism, r -> {
+			Thread t = new Thread(r, "region-loader");
+			t.setDaemon(true);
+			return t;
+		});
+		ArrayDeque<Future<T>> pending = new ArrayDeque<>();
+		int maxInFlight = 2 * this.parallelism;
+
+		this.readNanos = 0;
+		try (FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.READ)) {
+
+			byte[] data = new byte[CHUNK_SIZE];
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			boolean skipHeader = offset == 0;
+			boolean eof = false;
+			long consumed = offset;
+
+			channel.position(offset);
+			while(!eof) {
+				long readStart = System.nanoTime();
+				eof = channel.read(buffer) < 0;
+				this.readNanos += System.nanoTime() - readStart;
+
+				// Only complete lines are parsed, the remaining bytes are kept for the next read
+				int end = eof && partialLastLine ? buffer.position() : lastLineEnd(data, buffer.position());
+				if(end < 0) {
+					if(!eof && !buffer.hasRemaining()) {
+						// A single line does not fit into the buffer
+						data = Arrays.copyOf(data, 2 * data.length);
+						buffer = ByteBuffer.wrap(data).position(buffer.position());
+					}
+					continue;
+				}
+
+				byte[] chunk = Arrays.copyOf(data, end);
+				int from = 0;
+				if(skipHeader) {
+					from = nextLine(chunk, 0);
+					skipHeader = false;
+				}
+
+				int start = from;
+				pending.add(workers.submit(() -> parser.parse(chunk, start)));
+				consumed += end;
+
+				int remaining = buffer.position() - end;
+				System.arraycopy(data, end, data, 0, remaining);
+				buffer.position(remaining);
+
+				while(pending.size() >= maxInFlight)
+					consumer.accept(result(pending.poll()));
+			}
+
+			while(!pending.isEmpty())
+				consumer.accept(result(pending.poll()));
+
+			return consumed;
+		}
+		finally {
+			pending.forEach(f -> f.cancel(true));
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Wait for a parsing task and return its result.
+	 */
+	private static <T> T result(Future<T> task) throws IOException {
+
+		try {
+			return task.get();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Loading interrupted");
+		}
+		catch(ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if(e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	/**
+	 * Pass the rows parsed from a chunk to the consumer.
+	 * Rejected lines are notified here, so that they are notified in order.
+	 */
+	private void addRows(Consumer<HutRow> sink, ParsedChunk parsed) {
+
+		for(int i = 0; i < parsed.rejectedLines.size(); i++) {
+			long lineNumber = this.nextLine + parsed.rejectedLines.get(i);
+			this.report.addRejected(lineNumber, parsed.rejectedText.get(i));
+			if(this.listener != null)
+				this.listener.lineRejected(lineNumber, parsed.rejectedText.get(i), parsed.rejectedReasons.get(i));
+		}
+		this.nextLine += parsed.lines;
+		this.report.addParseNanos(parsed.parseNanos);
+
+		long indexStart = System.nanoTime();
+		for(HutRow row : parsed.rows)
+			sink.accept(row);
+		this.report.addIndexNanos(System.nanoTime() - indexStart);
+		this.report.addRows(parsed.rows.size());
+	}
+
+	/**
+	 * Parse all the lines contained in a chunk starting at the given offset.
+	 * Blank lines are ignored, malformed lines are collected as rejected.
+	 *
+	 * @param chunk: bytes of the chunk, ending with a complete line
+	 * @param from: offset of the first line to be parsed
+	 * @return the parsed rows
+	 */
+	static ParsedChunk parseChunk(byte[] chunk, int from) {
+
+		long parseStart = System.nanoTime();
+		ParsedChunk retValue = new ParsedChunk();
+		int[] bounds = new int[NUM_OF_FIELDS + 1];
+
+		for(int start = from; start < chunk.length; ) {
+			int next = nextLine(chunk, start);
+			int end = next;
+
+			// Strip the line terminator, either "\n" or "\r\n"
+			while(end > start && (chunk[end-1] == '\n' || chunk[end-1] == '\r'))
+				end--;
+
+			if(!isBlank(chunk, start, end)) {
+				try {
+					retValue.rows.add(parseLine(chunk, start, end, bounds));
+				}
+				catch(IllegalArgumentException e) {
+					retValue.rejectedLines.add(retValue.lines);
+					retValue.rejectedText.add(text(chunk, start, end));
+					retValue.rejectedReasons.add(e.getMessage());
+				}
+			}
+
+			retValue.lines++;
+			start = next;
+		}
+
+		retValue.parseNanos = System.nanoTime() - parseStart;
+		return retValue;
+	}
+
+	/**
+	 * Parse a single line given its boundaries inside the buffer.
+	 *
+	 * The fields are: Province, Municipality, MunicipalityAltitude,
+	 * Name, Altitude, Category, BedsNumber. The Altitude may be empty.
+	 */
+	private static HutRow parseLine(byte[] line, int start, int end, int[] bounds) {
+
+		int fields = split(line, start, end, bounds, NUM_OF_FIELDS);
+
+		if(fields < NUM_OF_FIELDS)
+			throw new IllegalArgumentException("Expected " + NUM_OF_FIELDS + " fields, found " + fields);
+
+		Integer altitude = null;
+		if(!isBlank(line, bounds[4] + 1, bounds[5]))
+			altitude = parseInt(line, bounds[4] + 1, bounds[5]);
+
+		return new HutRow(text(line, bounds[0] + 1, bounds[1]),
+				text(line, bounds[1] + 1, bounds[2]),
+				parseInt(line, bounds[2] + 1, bounds[3]),
+				text(line, bounds[3] + 1, bounds[4]),
+				altitude,
+				text(line, bounds[5] + 1, bounds[6]),
+				parseInt(line, bounds[6] + 1, bounds[7]));
+	}
+
+	/**
+	 * Parser of a chunk of lines, run by the worker threads
+	 */
+	interface ChunkParser<T> {
+
+		/**
+		 * @param chunk: bytes of the chunk, ending with a complete line
+		 * @param from: offset of the first line to be parsed
+		 * @return the result of the parsing
+		 */
+		T parse(byte[] chunk, int from);
+	}
+
+	/**
+	 * Result of the parsing of a chunk: the rows, the number of lines and the
+	 * malformed lines, identified by their index within the chunk.
+	 */
+	static class ParsedChunk {
+
+		List<HutRow> rows = new ArrayList<>();
+		int lines;
+		List<Integer> rejectedLines = new ArrayList<>();
+		List<String> rejectedText = new ArrayList<>();
+		List<String> rejectedReasons = new ArrayList<>();
+		long parseNanos;
+	}
+
+	/**
+	 * Find the boundaries of the first fields of a line: field {@code i} lies between
+	 * {@code bounds[i]} and {@code bounds[i+1]}, both excluded.
+	 * The line is scanned only up to the end of the last requested field.
+	 *
+	 * @param line: the buffer containing the line
+	 * @param start: offset of the beginning of the line
+	 * @param end: offset of the end of the line, excluding the terminator
+	 * @param bounds: array receiving the boundaries, with at least {@code fields + 1} elements
+	 * @param fields: the number of fields requested
+	 * @return the number of fields found, at most the requested ones
+	 */
+	static int split(byte[] line, int start, int end, int[] bounds, int fields) {
+
+		int field = 0;
+
+		bounds[0] = start - 1;
+		for(int i = start; i < end && field < fields; i++) {
+			if(line[i] == SEPARATOR)
+				bounds[++field] = i;
+		}
+		if(field < fields)
+			bounds[++field] = end;
+
+		return field;
+	}
+
+	static String text(byte[] data, int from, int to) {
+		return new String(data, from, to - from, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parse a decimal integer without creating an intermediate string.
+	 *
+	 * @throws NumberFormatException if the bytes are not a valid integer
+	 */
+	static int parseInt(byte[] data, int from, int to) {
+
+		boolean negative = from < to && data[from] == '-';
+		long value = 0;
+		int i = negative ? from + 1 : from;
+
+		if(i >= to)
+			throw new NumberFormatException("For input string: \"" + text(data, from, to) + "\"");
+
+		for(; i < to; i++) {
+			int digit = data[i] - '0';
+			if(digit < 0 || digit > 9 || value > Integer.MAX_VALUE)
+				throw new NumberFormatException("For input string: \"" + text(data, from, to) + "\"");
+			value = value * 10 + digit;
+		}
+
+		value = negative ? -value : value;
+		if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			throw new NumberFormatException("For input string: \"" + text(data, from, to) + "\"");
+
+		return (int) value;
+	}
+
+	static boolean isBlank(byte[] data, int from, int to) {
+		for(int i = from; i < to; i++) {
+			if(!Character.isWhitespace(data[i]))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return the offset following the first line terminator found
+	 * starting at the given offset, or the length of the data if there is none.
+	 */
+	static int nextLine(byte[] data, int from) {
+		for(int i = from; i < data.length; i++) {
+			if(data[i] == '\n')
+				return i + 1;
+		}
+		return data.length;
+	}
+
+	/**
+	 * Return the offset following the last line terminator within the
+	 * first {@code length} bytes, or -1 if there is none.
+	 */
+	static int lastLineEnd(byte[] data, int length) {
+		for(int i = length - 1; i >= 0; i--) {
+			if(data[i] == '\n')
+				return i + 1;
+		}
+		return -1;
+	}
+
+}
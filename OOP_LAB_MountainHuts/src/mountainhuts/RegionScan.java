@@ -0,0 +1,247 @@
+package mountainhuts;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * One-off statistics computed directly on a mountain huts CSV file,
+ * in the format accepted by {@link Region#fromFile(String, String)}.
+ *
+ * No {@link Region}, {@link Municipality} or {@link MountainHut} is created:
+ * the file is scanned in parallel chunks and only the columns needed by the
+ * statistic are decoded. Each chunk is aggregated into a partial result,
+ * and the partial results are merged.
+ * <p>
+ * Lines are validated as {@link Region#fromFile(String, String)} does, whatever
+ * the columns used by the statistic: lines with fewer fields or with an invalid
+ * MunicipalityAltitude, Altitude or BedsNumber are skipped.
+ * Rows are aggregated as they appear in the file, therefore the results
+ * are the same as the ones of {@link Region} as long as the names of the
+ * mountain huts are unique and each municipality always appears with the
+ * same province and altitude.
+ *
+ */
+public class RegionScan {
+
+	// Columns of the file
+	private final static int PROVINCE = 0;
+	private final static int MUNICIPALITY = 1;
+	private final static int MUNICIPALITY_ALTITUDE = 2;
+	private final static int ALTITUDE = 4;
+	private final static int BEDS_NUMBER = 6;
+
+	private RegionScan() {
+	}
+
+	/**
+	 * Compute the total number of beds available in the mountain huts per each province.
+	 * Only the columns Province and BedsNumber are decoded.
+	 *
+	 * @param file: the path of the file
+	 * @return a map with the province as key and the total number of beds as value
+	 * @throws IOException in case of errors while reading the file
+	 */
+	public static Map<String, Integer> totalBedsNumberPerProvince(String file) throws IOException {
+
+		Map<String, Integer> retValue = new HashMap<>();
+
+		new RegionLoader().scan(file, 0, true, (chunk, from) -> {
+			Map<String, Integer> partial = new HashMap<>();
+			KeyCache provinces = new KeyCache();
+			forEachLine(chunk, from, (line, bounds) ->
+				partial.merge(provinces.decode(line, bounds[PROVINCE] + 1, bounds[PROVINCE + 1]),
+						RegionLoader.parseInt(line, bounds[BEDS_NUMBER] + 1, bounds[BEDS_NUMBER + 1]), Integer::sum));
+			return partial;
+		}, partial -> partial.forEach((k, v) -> retValue.merge(k, v, Integer::sum)));
+
+		return retValue;
+	}
+
+	/**
+	 * Count the number of municipalities per each province.
+	 * Only the columns Province and Municipality are decoded; a municipality
+	 * belongs to the province of its first occurrence.
+	 *
+	 * @param file: the path of the file
+	 * @return a map with the province as key and the number of municipalities as value
+	 * @throws IOException in case of errors while reading the file
+	 */
+	public static Map<String, Long> countMunicipalitiesPerProvince(String file) throws IOException {
+
+		Map<String, String> provinceOf = new HashMap<>();
+		Map<String, Long> retValue = new HashMap<>();
+
+		new RegionLoader().scan(file, 0, true, (chunk, from) -> {
+			// Insertion order is kept, so that the first occurrence wins when merging
+			Map<String, String> partial = new LinkedHashMap<>();
+			KeyCache provinces = new KeyCache();
+			forEachLine(chunk, from, (line, bounds) ->
+				partial.putIfAbsent(RegionLoader.text(line, bounds[MUNICIPALITY] + 1, bounds[MUNICIPALITY + 1]),
+						provinces.decode(line, bounds[PROVINCE] + 1, bounds[PROVINCE + 1])));
+			return partial;
+		}, partial -> partial.forEach(provinceOf::putIfAbsent));
+
+		provinceOf.values().forEach(p -> retValue.merge(p, 1L, Long::sum));
+
+		return retValue;
+	}
+
+	/**
+	 * Count the number of mountain huts per altitude range. If the altitude of the
+	 * mountain hut is not available, use the altitude of its municipality.
+	 * Only the columns MunicipalityAltitude and Altitude are decoded.
+	 *
+	 * @param file: the path of the file
+	 * @param ranges: the altitude ranges in the format "[minValue]-[maxValue]"
+	 * @return a map with the altitude range as key and the number of mountain huts as value
+	 * @throws IOException in case of errors while reading the file
+	 */
+	public static Map<String, Long> countMountainHutsPerAltitudeRange(String file, String... ranges) throws IOException {
+
+		AltitudeRangeIndex index = new AltitudeRangeIndex(ranges);
+		long[] counts = new long[index.size() + 1];
+
+		new RegionLoader().scan(file, 0, true, (chunk, from) -> {
+			long[] partial = new long[counts.length];
+			forEachLine(chunk, from, (line, bounds) -> partial[rangeSlot(index, altitude(line, bounds))]++);
+			return partial;
+		}, partial -> Arrays.setAll(counts, r -> counts[r] + partial[r]));
+
+		Map<String, Long> retValue = new HashMap<>();
+		for(int r = 0; r < counts.length; r++) {
+			if(counts[r] > 0)
+				retValue.put(rangeLabel(index, r), counts[r]);
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Compute the maximum number of beds available in a single mountain hut per
+	 * altitude range. If the altitude of the mountain hut is not available, use the
+	 * altitude of its municipality.
+	 * Only the columns MunicipalityAltitude, Altitude and BedsNumber are decoded.
+	 *
+	 * @param file: the path of the file
+	 * @param ranges: the altitude ranges in the format "[minValue]-[maxValue]"
+	 * @return a map with the altitude range as key and the maximum number of beds as value
+	 * @throws IOException in case of errors while reading the file
+	 */
+	public static Map<String, Optional<Integer>> maximumBedsNumberPerAltitudeRange(String file, String... ranges) throws IOException {
+
+		AltitudeRangeIndex index = new AltitudeRangeIndex(ranges);
+		// Integer.MIN_VALUE stands for a range without mountain huts
+		int[] maxBeds = new int[index.size() + 1];
+		Arrays.fill(maxBeds, Integer.MIN_VALUE);
+
+		new RegionLoader().scan(file, 0, true, (chunk, from) -> {
+			int[] partial = new int[maxBeds.length];
+			Arrays.fill(partial, Integer.MIN_VALUE);
+			forEachLine(chunk, from, (line, bounds) -> {
+				int slot = rangeSlot(index, altitude(line, bounds));
+				partial[slot] = Math.max(partial[slot], RegionLoader.parseInt(line, bounds[BEDS_NUMBER] + 1, bounds[BEDS_NUMBER + 1]));
+			});
+			return partial;
+		}, partial -> Arrays.setAll(maxBeds, r -> Math.max(maxBeds[r], partial[r])));
+
+		Map<String, Optional<Integer>> retValue = new HashMap<>();
+		for(int r = 0; r < maxBeds.length; r++) {
+			if(maxBeds[r] != Integer.MIN_VALUE)
+				retValue.put(rangeLabel(index, r), Optional.of(maxBeds[r]));
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Consumer of the fields of a line
+	 */
+	private interface LineVisitor {
+		void visit(byte[] line, int[] bounds);
+	}
+
+	/**
+	 * Split the lines of a chunk into their fields and pass the valid ones to the visitor.
+	 * Blank lines, lines with fewer fields and lines with invalid numbers are skipped,
+	 * as they are rejected when loading a {@link Region}.
+	 */
+	private static void forEachLine(byte[] chunk, int from, LineVisitor visitor) {
+
+		int[] bounds = new int[RegionLoader.NUM_OF_FIELDS + 1];
+
+		for(int start = from; start < chunk.length; ) {
+			int next = RegionLoader.nextLine(chunk, start);
+			int end = next;
+
+			while(end > start && (chunk[end-1] == '\n' || chunk[end-1] == '\r'))
+				end--;
+
+			if(!RegionLoader.isBlank(chunk, start, end) && RegionLoader.split(chunk, start, end, bounds, RegionLoader.NUM_OF_FIELDS) == RegionLoader.NUM_OF_FIELDS) {
+				try {
+					validate(chunk, bounds);
+					visitor.visit(chunk, bounds);
+				}
+				catch(NumberFormatException e) {
+					// Malformed line, skipped
+				}
+			}
+
+			start = next;
+		}
+	}
+
+	/**
+	 * Check the numeric fields of a line, even the ones not used by the statistic
+	 *
+	 * @throws NumberFormatException if a numeric field is not valid
+	 */
+	private static void validate(byte[] line, int[] bounds) {
+		RegionLoader.parseInt(line, bounds[MUNICIPALITY_ALTITUDE] + 1, bounds[MUNICIPALITY_ALTITUDE + 1]);
+		if(!RegionLoader.isBlank(line, bounds[ALTITUDE] + 1, bounds[ALTITUDE + 1]))
+			RegionLoader.parseInt(line, bounds[ALTITUDE] + 1, bounds[ALTITUDE + 1]);
+		RegionLoader.parseInt(line, bounds[BEDS_NUMBER] + 1, bounds[BEDS_NUMBER + 1]);
+	}
+
+	/**
+	 * Altitude of the hut, or of its municipality if not available
+	 */
+	private static int altitude(byte[] line, int[] bounds) {
+		if(RegionLoader.isBlank(line, bounds[ALTITUDE] + 1, bounds[ALTITUDE + 1]))
+			return RegionLoader.parseInt(line, bounds[MUNICIPALITY_ALTITUDE] + 1, bounds[MUNICIPALITY_ALTITUDE + 1]);
+		return RegionLoader.parseInt(line, bounds[ALTITUDE] + 1, bounds[ALTITUDE + 1]);
+	}
+
+	private static int rangeSlot(AltitudeRangeIndex index, int altitude) {
+		int range = index.rangeOf(altitude);
+		return range == AltitudeRangeIndex.NO_RANGE ? index.size() : range;
+	}
+
+	private static String rangeLabel(AltitudeRangeIndex index, int slot) {
+		return slot == index.size() ? Region.NO_RANGE : index.label(slot);
+	}
+
+	/**
+	 * Decoder of repeated values: the file is usually sorted by province,
+	 * so the last value decoded is reused as long as the bytes are the same.
+	 */
+	private static class KeyCache {
+
+		private byte[] lastBytes = new byte[0];
+		private String lastValue;
+
+		String decode(byte[] data, int from, int to) {
+
+			if(this.lastValue == null || !Arrays.equals(data, from, to, this.lastBytes, 0, this.lastBytes.length)) {
+				this.lastBytes = Arrays.copyOfRange(data, from, to);
+				this.lastValue = RegionLoader.text(data, from, to);
+			}
+
+			return this.lastValue;
+		}
+	}
+
+}
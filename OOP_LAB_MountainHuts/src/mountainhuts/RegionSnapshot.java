@@ -0,0 +1,230 @@
+package mountainhuts;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary snapshot of a fully built {@link Region}.
+ *
+ * The snapshot contains, in this order (all numbers are big endian):
+ * <ul>
+ * <li>the magic number {@code "MHUT"} and the format version,
+ * <li>the region name,
+ * <li>the altitude ranges,
+ * <li>the dictionaries of provinces and categories,
+ * <li>the municipalities: name, province code, altitude and whether they belong to the region,
+ * <li>the mountain huts, stored by column: names, altitudes, beds, municipality indexes, category codes,
+ * <li>the CRC32 checksum of all the previous bytes.
+ * </ul>
+ * Strings are stored as their length followed by their UTF-8 bytes,
+ * missing altitudes as {@link HutStore#MISSING}.
+ *
+ * The snapshot is loaded through a memory mapped file, so its size is limited to 2 GB.
+ * Loading validates the checksum, then copies the columns in bulk into the store of
+ * the region and rebuilds its aggregates with one pass over the rows: no municipality
+ * or mountain hut goes through the {@code createOrGet*} methods. The names are still
+ * decoded and indexed, since the region looks them up on every insertion.
+ *
+ */
+class RegionSnapshot {
+
+	private final static int MAGIC = 0x4D485554; // "MHUT"
+	private final static int VERSION = 1;
+
+	/**
+	 * Write the snapshot of a region into a file.
+	 * Only the first mountain huts of the store are saved, together with the municipalities
+	 * and the dictionary entries already added when this method is called, so the store
+	 * may be filled by another thread meanwhile.
+	 *
+	 * @param name: the name of the region
+	 * @param ranges: the altitude ranges of the region
+	 * @param store: the store of the region
+	 * @param size: the number of mountain huts to be saved
+	 * @param file: the path of the file
+	 * @throws IOException in case of errors while writing the file
+	 */
+	static void save(String name, AltitudeRangeIndex ranges, HutStore store, int size, String file) throws IOException {
+
+		// Read after the number of huts, so that it includes all their municipalities
+		int municipalities = store.municipalityCount();
+		CRC32 checksum = new CRC32();
+		OutputStream os = Files.newOutputStream(Path.of(file));
+
+		try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(os, 1 << 16), checksum))) {
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, name);
+
+			out.writeInt(ranges.size());
+			for(int i = 0; i < ranges.size(); i++)
+				writeString(out, ranges.label(i));
+
+			writeDictionary(out, store.provinces());
+			writeDictionary(out, store.categories());
+
+			out.writeInt(municipalities);
+			for(int i = 0; i < municipalities; i++) {
+				Municipality m = store.municipalityAt(i);
+				writeString(out, m.getName());
+				out.writeInt(store.municipalityProvince(i));
+				out.writeInt(m.getAltitude() == null ? HutStore.MISSING : m.getAltitude());
+				out.writeBoolean(store.isForeign(i));
+			}
+
+			out.writeInt(size);
+			for(int row = 0; row < size; row++)
+				writeString(out, store.name(row));
+			for(int row = 0; row < size; row++)
+				out.writeInt(store.altitude(row));
+			for(int row = 0; row < size; row++)
+				out.writeInt(store.beds(row));
+			for(int row = 0; row < size; row++)
+				out.writeInt(store.municipality(row));
+			for(int row = 0; row < size; row++)
+				out.writeInt(store.category(row));
+
+			// The checksum itself is not part of the checked bytes
+			out.flush();
+			new DataOutputStream(os).writeInt((int) checksum.getValue());
+		}
+	}
+
+	/**
+	 * Read a region from a snapshot file.
+	 *
+	 * @param file: the path of the file
+	 * @return the region
+	 * @throws IOException in case of errors while reading the file, or if the snapshot is not valid
+	 */
+	static Region load(String file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.READ)) {
+
+			if(channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Snapshot too large: " + file);
+			if(channel.size() < 12)
+				throw new IOException("Not a region snapshot: " + file);
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			int length = buffer.limit() - Integer.BYTES;
+
+			if(buffer.getInt(0) != MAGIC)
+				throw new IOException("Not a region snapshot: " + file);
+			if(buffer.getInt(Integer.BYTES) != VERSION)
+				throw new IOException("Unsupported snapshot version " + buffer.getInt(Integer.BYTES) + ": " + file);
+
+			CRC32 checksum = new CRC32();
+			checksum.update(buffer.duplicate().limit(length));
+			if((int) checksum.getValue() != buffer.getInt(length))
+				throw new IOException("Corrupted snapshot: " + file);
+
+			try {
+				return read(buffer.position(2 * Integer.BYTES).limit(length));
+			}
+			catch(BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+				throw new IOException("Corrupted snapshot: " + file, e);
+			}
+		}
+	}
+
+	/**
+	 * Decode the content of the snapshot following the header.
+	 */
+	private static Region read(ByteBuffer in) throws IOException {
+
+		Region region = new Region(readString(in));
+
+		String[] ranges = new String[count(in)];
+		for(int i = 0; i < ranges.length; i++)
+			ranges[i] = readString(in);
+		region.setAltitudeRanges(ranges);
+
+		String[] provinces = readDictionary(in);
+		String[] categories = readDictionary(in);
+
+		int count = count(in);
+		String[] municipalityNames = new String[count];
+		int[] municipalityProvinces = new int[count];
+		int[] municipalityAltitudes = new int[count];
+		boolean[] foreign = new boolean[count];
+		for(int i = 0; i < count; i++) {
+			municipalityNames[i] = readString(in);
+			municipalityProvinces[i] = in.getInt();
+			municipalityAltitudes[i] = in.getInt();
+			foreign[i] = in.get() != 0;
+		}
+
+		int huts = count(in);
+		String[] names = new String[huts];
+		for(int row = 0; row < huts; row++)
+			names[row] = readString(in);
+
+		// The numeric columns are copied in bulk from the mapped buffer
+		if(in.remaining() != 4L * huts * Integer.BYTES)
+			throw new IOException("Unexpected snapshot length");
+		IntBuffer columns = in.asIntBuffer();
+		int[] altitudes = new int[huts];
+		int[] beds = new int[huts];
+		int[] hutMunicipalities = new int[huts];
+		int[] hutCategories = new int[huts];
+		columns.get(altitudes).get(beds).get(hutMunicipalities).get(hutCategories);
+
+		region.store().loadColumns(provinces, categories, municipalityNames, municipalityProvinces,
+				municipalityAltitudes, foreign, names, altitudes, beds, hutMunicipalities, hutCategories);
+		region.storeLoaded();
+
+		return region;
+	}
+
+	private static void writeDictionary(DataOutputStream out, StringDictionary dictionary) throws IOException {
+		int size = dictionary.size();
+		out.writeInt(size);
+		for(int i = 0; i < size; i++)
+			writeString(out, dictionary.decode(i));
+	}
+
+	private static String[] readDictionary(ByteBuffer in) {
+		String[] values = new String[count(in)];
+		for(int i = 0; i < values.length; i++)
+			values[i] = readString(in);
+		return values;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer in) {
+		byte[] bytes = new byte[count(in)];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read a number of elements, checking that it is consistent with the remaining bytes
+	 */
+	private static int count(ByteBuffer in) {
+		int count = in.getInt();
+		if(count < 0 || count > in.remaining())
+			throw new IllegalArgumentException("Invalid count " + count);
+		return count;
+	}
+
+}
@@ -0,0 +1,312 @@
+package mountainhuts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Aggregation engine for the statistics of a {@link Region}.
+ *
+ * Municipalities and mountain huts are added one at a time, as they are
+ * inserted in the region, and all the statistics are kept up to date together
+ * into primitive counters indexed by the province codes, the municipality indexes
+ * and the altitude ranges of the {@link HutStore}. The result maps are built from
+ * the counters when they are requested, at a cost proportional to their size.
+ * The results only include the municipalities and mountain huts that were added,
+ * even if the store already holds more of them.
+ *
+ */
+class RegionStatistics {
+
+	private HutStore store;
+	private AltitudeRangeIndex ranges;
+
+	// Counters indexed by province code
+	private long[] municipalitiesPerProvince;
+	private long[] hutsPerProvince;
+	private long[] bedsPerProvince;
+
+	// Counters indexed by municipality index
+	private long[] hutsPerMunicipality;
+
+	// Counters indexed by altitude range, the last slot is used for the default range
+	private long[] hutsPerRange;
+	private int[] maxBedsPerRange;
+
+	/*
+	 * Constructor of the RegionStatistics class
+	 *
+	 * @param store: the store containing the data of the region
+	 * @param ranges: the altitude ranges used to group the mountain huts
+	 */
+	RegionStatistics(HutStore store, AltitudeRangeIndex ranges) {
+		this.store = store;
+		this.ranges = ranges;
+		this.municipalitiesPerProvince = new long[8];
+		this.hutsPerProvince = new long[8];
+		this.bedsPerProvince = new long[8];
+		this.hutsPerMunicipality = new long[64];
+		this.hutsPerRange = new long[ranges.size() + 1];
+		this.maxBedsPerRange = new int[ranges.size() + 1];
+	}
+
+	/*
+	 * Copy of the counters of other statistics
+	 */
+	private RegionStatistics(RegionStatistics other) {
+		this.store = other.store;
+		this.ranges = other.ranges;
+		this.municipalitiesPerProvince = other.municipalitiesPerProvince.clone();
+		this.hutsPerProvince = other.hutsPerProvince.clone();
+		this.bedsPerProvince = other.bedsPerProvince.clone();
+		this.hutsPerMunicipality = other.hutsPerMunicipality.clone();
+		this.hutsPerRange = other.hutsPerRange.clone();
+		this.maxBedsPerRange = other.maxBedsPerRange.clone();
+	}
+
+	/**
+	 * Return independent statistics with the same counters, which can be
+	 * updated with more municipalities and mountain huts without changing these ones.
+	 *
+	 * @return the copy of the statistics
+	 */
+	RegionStatistics copy() {
+		return new RegionStatistics(this);
+	}
+
+	/**
+	 * Change the altitude ranges used to group the mountain huts.
+	 * Only the counters per altitude range are recomputed.
+	 *
+	 * @param ranges: the new altitude ranges
+	 */
+	void setRanges(AltitudeRangeIndex ranges) {
+
+		this.ranges = ranges;
+		this.hutsPerRange = new long[ranges.size() + 1];
+		this.maxBedsPerRange = new int[ranges.size() + 1];
+
+		for(int row = 0; row < this.store.size(); row++)
+			addToRange(row);
+	}
+
+	/**
+	 * Recompute all the counters from the content of the store, in a single pass
+	 * over the municipalities and one over the mountain huts.
+	 * Municipalities created outside the region are not counted, as they are never
+	 * added through {@link #addMunicipality(int)}.
+	 */
+	void rebuild() {
+
+		int provinces = Math.max(this.store.provinces().size(), 8);
+		int municipalities = Math.max(this.store.municipalityCount(), 64);
+
+		this.municipalitiesPerProvince = new long[provinces];
+		this.hutsPerProvince = new long[provinces];
+		this.bedsPerProvince = new long[provinces];
+		this.hutsPerMunicipality = new long[municipalities];
+		this.hutsPerRange = new long[this.ranges.size() + 1];
+		this.maxBedsPerRange = new int[this.ranges.size() + 1];
+
+		for(int index = 0; index < this.store.municipalityCount(); index++) {
+			if(!this.store.isForeign(index))
+				this.municipalitiesPerProvince[this.store.municipalityProvince(index)]++;
+		}
+
+		for(int row = 0; row < this.store.size(); row++) {
+			int province = this.store.province(row);
+			this.hutsPerProvince[province]++;
+			this.bedsPerProvince[province] += this.store.beds(row);
+			this.hutsPerMunicipality[this.store.municipality(row)]++;
+			addToRange(row);
+		}
+	}
+
+	/**
+	 * Account for a municipality of the region.
+	 *
+	 * @param index: the index of the municipality in the store
+	 */
+	void addMunicipality(int index) {
+		int province = this.store.municipalityProvince(index);
+
+		ensureCapacity(province, index);
+		this.municipalitiesPerProvince[province]++;
+	}
+
+	/**
+	 * Account for a mountain hut of the region.
+	 *
+	 * @param row: the row of the mountain hut in the store
+	 */
+	void addMountainHut(int row) {
+
+		int province = this.store.province(row);
+		int municipality = this.store.municipality(row);
+
+		ensureCapacity(province, municipality);
+		this.hutsPerProvince[province]++;
+		this.bedsPerProvince[province] += this.store.beds(row);
+		this.hutsPerMunicipality[municipality]++;
+
+		addToRange(row);
+	}
+
+	/**
+	 * Update the counters of the altitude range including the mountain hut.
+	 * If the altitude of the hut is not available, the altitude of its municipality is used.
+	 */
+	private void addToRange(int row) {
+
+		int range = rangeSlot(this.store.effectiveAltitude(row));
+		int beds = this.store.beds(row);
+
+		if(this.hutsPerRange[range] == 0 || beds > this.maxBedsPerRange[range])
+			this.maxBedsPerRange[range] = beds;
+		this.hutsPerRange[range]++;
+	}
+
+	/**
+	 * Number of municipalities per province
+	 */
+	Map<String, Long> municipalitiesPerProvince() {
+
+		Map<String, Long> retValue = new HashMap<>();
+
+		for(int p = 0; p < provinceCount(); p++) {
+			if(this.municipalitiesPerProvince[p] > 0)
+				retValue.put(this.store.provinces().decode(p), this.municipalitiesPerProvince[p]);
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Number of mountain huts per municipality within each province
+	 */
+	Map<String, Map<String, Long>> mountainHutsPerMunicipalityPerProvince() {
+
+		Map<String, Map<String, Long>> retValue = new HashMap<>();
+
+		for(int p = 0; p < provinceCount(); p++) {
+			if(this.municipalitiesPerProvince[p] > 0)
+				retValue.put(this.store.provinces().decode(p), new HashMap<>());
+		}
+
+		for(int m = 0; m < municipalityCount(); m++) {
+			if(this.hutsPerMunicipality[m] > 0) {
+				String province = this.store.provinces().decode(this.store.municipalityProvince(m));
+				retValue.computeIfAbsent(province, p -> new HashMap<>()).put(this.store.municipalityAt(m).getName(), this.hutsPerMunicipality[m]);
+			}
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Number of mountain huts per altitude range
+	 */
+	Map<String, Long> mountainHutsPerAltitudeRange() {
+
+		Map<String, Long> retValue = new HashMap<>();
+
+		for(int r = 0; r < this.hutsPerRange.length; r++) {
+			if(this.hutsPerRange[r] > 0)
+				retValue.put(rangeLabel(r), this.hutsPerRange[r]);
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Total number of beds per province
+	 */
+	Map<String, Integer> bedsPerProvince() {
+
+		Map<String, Integer> retValue = new HashMap<>();
+
+		for(int p = 0; p < provinceCount(); p++) {
+			if(this.hutsPerProvince[p] > 0)
+				retValue.put(this.store.provinces().decode(p), (int) this.bedsPerProvince[p]);
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Maximum number of beds in a single mountain hut per altitude range
+	 */
+	Map<String, Optional<Integer>> maximumBedsPerAltitudeRange() {
+
+		Map<String, Optional<Integer>> retValue = new HashMap<>();
+
+		for(int r = 0; r < this.hutsPerRange.length; r++) {
+			if(this.hutsPerRange[r] > 0)
+				retValue.put(rangeLabel(r), Optional.of(this.maxBedsPerRange[r]));
+		}
+
+		return retValue;
+	}
+
+	/**
+	 * Municipality names, in alphabetical order, per number of mountain huts
+	 */
+	Map<Long, List<String>> municipalityNamesPerCountOfMountainHuts() {
+
+		Map<Long, List<String>> retValue = new HashMap<>();
+		TreeMap<String, Long> sorted = new TreeMap<>();
+
+		for(int m = 0; m < municipalityCount(); m++) {
+			if(this.hutsPerMunicipality[m] > 0)
+				sorted.put(this.store.municipalityAt(m).getName(), this.hutsPerMunicipality[m]);
+		}
+
+		sorted.forEach((name, count) -> retValue.computeIfAbsent(count, c -> new ArrayList<>()).add(name));
+
+		return retValue;
+	}
+
+	/**
+	 * Number of provinces that may have been counted
+	 */
+	private int provinceCount() {
+		return Math.min(this.store.provinces().size(), this.municipalitiesPerProvince.length);
+	}
+
+	/**
+	 * Number of municipalities that may have been counted
+	 */
+	private int municipalityCount() {
+		return Math.min(this.store.municipalityCount(), this.hutsPerMunicipality.length);
+	}
+
+	/**
+	 * Grow the counters so that they can hold the given province and municipality
+	 */
+	private void ensureCapacity(int province, int municipality) {
+
+		if(province >= this.municipalitiesPerProvince.length) {
+			int capacity = Math.max(2 * this.municipalitiesPerProvince.length, province + 1);
+			this.municipalitiesPerProvince = Arrays.copyOf(this.municipalitiesPerProvince, capacity);
+			this.hutsPerProvince = Arrays.copyOf(this.hutsPerProvince, capacity);
+			this.bedsPerProvince = Arrays.copyOf(this.bedsPerProvince, capacity);
+		}
+
+		if(municipality >= this.hutsPerMunicipality.length)
+			this.hutsPerMunicipality = Arrays.copyOf(this.hutsPerMunicipality, Math.max(2 * this.hutsPerMunicipality.length, municipality + 1));
+	}
+
+	private int rangeSlot(int altitude) {
+		int range = this.ranges.rangeOf(altitude);
+		return range == AltitudeRangeIndex.NO_RANGE ? this.ranges.size() : range;
+	}
+
+	private String rangeLabel(int slot) {
+		return slot == this.ranges.size() ? Region.NO_RANGE : this.ranges.label(slot);
+	}
+
+}
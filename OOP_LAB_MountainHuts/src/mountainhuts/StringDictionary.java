@@ -0,0 +1,90 @@
+package mountainhuts;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary encoding of repeated strings.
+ *
+ * Every distinct string is assigned a dense int code, in order of first
+ * appearance, and a single instance of the string is kept.
+ * <p>
+ * A single thread may add strings while other threads decode codes and look
+ * strings up: the codes are kept in a concurrent map and the strings in an
+ * array that is grown by copying it, so a code that was read is always decoded.
+ *
+ */
+class StringDictionary {
+
+	// Key standing for null, which concurrent maps do not accept
+	private final static Object NULL = new Object();
+
+	private Map<Object, Integer> codes;
+	private volatile String[] values;
+	private volatile int size;
+
+	/*
+	 * Constructor of the StringDictionary class
+	 */
+	StringDictionary() {
+		this.codes = new ConcurrentHashMap<>();
+		this.values = new String[8];
+		this.size = 0;
+	}
+
+	/**
+	 * Return the code of the given string, adding it to the dictionary if needed.
+	 *
+	 * @param value: the string to encode
+	 * @return the code of the string
+	 */
+	int encode(String value) {
+
+		Object key = value == null ? NULL : value;
+		Integer code = this.codes.get(key);
+
+		if(code == null) {
+			code = this.size;
+			if(code == this.values.length)
+				this.values = Arrays.copyOf(this.values, 2 * code);
+			// The string is stored and counted before its code can be found
+			this.values[code] = value;
+			this.size = code + 1;
+			this.codes.put(key, code);
+		}
+
+		return code;
+	}
+
+	/**
+	 * Return the code of the given string without adding it.
+	 *
+	 * @param value: the string to look for
+	 * @return the code of the string, or -1 if it is not in the dictionary
+	 */
+	int codeOf(String value) {
+		Integer code = this.codes.get(value == null ? NULL : value);
+		return code == null ? -1 : code;
+	}
+
+	/**
+	 * Return the string with the given code.
+	 *
+	 * @param code: the code of the string
+	 * @return the string
+	 */
+	String decode(int code) {
+		if(code >= this.size)
+			throw new IndexOutOfBoundsException(code);
+		return this.values[code];
+	}
+
+	/**
+	 * Number of distinct strings in the dictionary
+	 */
+	int size() {
+		return this.size;
+	}
+
+}